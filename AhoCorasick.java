@@ -0,0 +1,437 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton that finds every occurrence of a whole set of
+ * patterns in a single pass over the text.
+ *
+ * The patterns are stored in a trie, and every node gets a failure link to
+ * the longest proper suffix of its string that is also in the trie. This is
+ * the failure table of KMP generalised from one pattern to many: the failure
+ * link of the node for pattern[0..i] is the node for the first
+ * failureTable[i] characters.
+ *
+ * Characters are compared through an EquivalenceTable built from the
+ * comparator, so the trie branches on classes of equal characters rather
+ * than on raw chars. When the trie is small enough that a table with one
+ * int per node and class holds at most MAX_DENSE_ENTRIES entries, the
+ * failure links are folded into that table, so each text character costs
+ * exactly one table lookup. Larger tries, such as thousands of keywords
+ * over an alphabet of thousands of CJK characters, keep only their edges
+ * and follow the failure links on a mismatch, which costs amortised O(1)
+ * lookups per text character and memory linear in the total length of the
+ * patterns. Their nodes are numbered breadth first with the children of
+ * each node in order of class, so the children of a node are a run of
+ * consecutive nodes that is binary searched for a class, and the shallow
+ * nodes most lookups touch sit together in memory. The root, which almost
+ * every text character goes through, keeps a full row of children.
+ *
+ * Patterns are identified by their index in the list they were given in.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class AhoCorasick {
+
+    /**
+     * The largest number of entries the folded transition table may have
+     * before the automaton keeps its edges in a hash table instead.
+     */
+    public static final int MAX_DENSE_ENTRIES = 1 << 22;
+
+    private static final long EMPTY = -1L;
+    // keeps the hash table the trie is built with within one array
+    private static final int MAX_TOTAL_LENGTH = 1 << 28;
+
+    private final String[] patterns;
+    private final EquivalenceTable classes;
+    private final int classCount;
+    // transitions[node * classCount + class] is the next node, or null if
+    // the automaton is sparse
+    private final int[] transitions;
+    // the fields below are used when the automaton is sparse, and null
+    // otherwise: the child of the root for each class, or -1
+    private final int[] rootChildren;
+    // the children of node v are the nodes [firstChild[v], firstChild[v + 1])
+    private final int[] firstChild;
+    // class of the edge into each node, increasing among siblings
+    private final int[] edgeClass;
+    // failure link of each node
+    private final int[] failure;
+    // first pattern that ends at each node, or -1
+    private final int[] nodePattern;
+    // next pattern that ends at the same node as a pattern, or -1
+    private final int[] samePattern;
+    // nearest node along the failure links that ends a pattern, or -1
+    private final int[] outputLink;
+
+    /**
+     * Builds the automaton for the given patterns.
+     *
+     * @param patterns   the patterns you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if patterns is null or
+     *                                            empty, or contains a null or
+     *                                            empty pattern
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     * @throws java.lang.IllegalArgumentException if the patterns are too long
+     *                                            in total to build a trie of
+     */
+    public AhoCorasick(List<? extends CharSequence> patterns,
+                       CharacterComparator comparator) {
+        if (patterns == null || patterns.isEmpty()) {
+            throw new IllegalArgumentException("Cannot build Aho-Corasick without patterns");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Cannot build Aho-Corasick with a null comparator");
+        }
+        this.patterns = new String[patterns.size()];
+        StringBuilder alphabet = new StringBuilder();
+        long totalLength = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            CharSequence pattern = patterns.get(i);
+            if (pattern == null || pattern.length() == 0) {
+                throw new IllegalArgumentException("Invalid pattern at index " + i + " for Aho-Corasick");
+            }
+            totalLength += pattern.length();
+            if (totalLength > MAX_TOTAL_LENGTH) {
+                throw new IllegalArgumentException("Cannot build Aho-Corasick from patterns longer than "
+                        + MAX_TOTAL_LENGTH + " characters in total");
+            }
+            this.patterns[i] = pattern.toString();
+            alphabet.append(pattern);
+        }
+        classes = new EquivalenceTable(alphabet, comparator);
+        classCount = classes.size();
+
+        // the trie is first built with its edges in lists per node and in
+        // a hash table keyed on node and class, then turned into either form
+        int maxNodes = (int) totalLength + 1;
+        int capacity = Integer.highestOneBit(maxNodes * 2 - 1) << 1;
+        long[] keys = new long[capacity];
+        int[] children = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int[] edgeHead = new int[maxNodes];
+        Arrays.fill(edgeHead, -1);
+        int[] edgeNext = new int[maxNodes];
+        int[] classOf = new int[maxNodes];
+        int[] ends = new int[maxNodes];
+        Arrays.fill(ends, -1);
+        samePattern = new int[this.patterns.length];
+        int nodes = 1;
+        for (int id = 0; id < this.patterns.length; id++) {
+            String pattern = this.patterns[id];
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int c = classes.classOf(pattern.charAt(i));
+                int child = child(keys, children, capacity - 1, node, c);
+                if (child < 0) {
+                    child = nodes++;
+                    insert(keys, children, capacity - 1, node, c, child);
+                    classOf[child] = c;
+                    edgeNext[child] = edgeHead[node];
+                    edgeHead[node] = child;
+                }
+                node = child;
+            }
+            samePattern[id] = ends[node];
+            ends[node] = id;
+        }
+        outputLink = new int[nodes];
+
+        if ((long) nodes * classCount <= MAX_DENSE_ENTRIES) {
+            nodePattern = Arrays.copyOf(ends, nodes);
+            transitions = new int[nodes * classCount];
+            Arrays.fill(transitions, -1);
+            for (int node = 0; node < nodes; node++) {
+                for (int child = edgeHead[node]; child >= 0; child = edgeNext[child]) {
+                    transitions[node * classCount + classOf[child]] = child;
+                }
+            }
+            rootChildren = null;
+            firstChild = null;
+            edgeClass = null;
+            failure = null;
+            buildFailureLinks(nodes);
+            return;
+        }
+
+        // renumber the nodes breadth first, with siblings in order of class
+        transitions = null;
+        nodePattern = new int[nodes];
+        firstChild = new int[nodes + 1];
+        edgeClass = new int[nodes];
+        int[] order = new int[nodes];
+        long[] siblings = new long[nodes];
+        int tail = 1;
+        for (int node = 0; node < nodes; node++) {
+            int old = order[node];
+            nodePattern[node] = ends[old];
+            firstChild[node] = tail;
+            int count = 0;
+            for (int child = edgeHead[old]; child >= 0; child = edgeNext[child]) {
+                siblings[count++] = (long) classOf[child] << Integer.SIZE | child;
+            }
+            Arrays.sort(siblings, 0, count);
+            for (int k = 0; k < count; k++) {
+                order[tail] = (int) siblings[k];
+                edgeClass[tail] = (int) (siblings[k] >>> Integer.SIZE);
+                tail++;
+            }
+        }
+        firstChild[nodes] = nodes;
+        rootChildren = new int[classCount];
+        Arrays.fill(rootChildren, -1);
+        for (int child = firstChild[0]; child < firstChild[1]; child++) {
+            rootChildren[edgeClass[child]] = child;
+        }
+        failure = new int[nodes];
+        buildSparseFailureLinks(nodes);
+    }
+
+    /**
+     * Returns the number of patterns in the automaton.
+     *
+     * @return the number of patterns
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * Returns the pattern with the given id.
+     *
+     * @param patternId the id of the pattern
+     * @return the pattern
+     * @throws java.lang.IndexOutOfBoundsException if patternId is not valid
+     */
+    public String getPattern(int patternId) {
+        return patterns[patternId];
+    }
+
+    /**
+     * Checks whether the failure links are folded into a dense transition
+     * table, rather than followed on every mismatch.
+     *
+     * @return true if the automaton has a dense transition table
+     */
+    public boolean isDense() {
+        return transitions != null;
+    }
+
+    /**
+     * Searches the text for every pattern at once.
+     *
+     * @param text the body of text where you search for the patterns
+     * @return a list holding, at each pattern id, the starting index of every
+     * match of that pattern in increasing order
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public List<IntMatchList> search(CharSequence text) {
+        final List<IntMatchList> matches = new ArrayList<>(patterns.length);
+        for (int i = 0; i < patterns.length; i++) {
+            matches.add(new IntMatchList());
+        }
+        search(text, new MultiMatchSink() {
+            @Override
+            public boolean onMatch(int patternId, int index) {
+                matches.get(patternId).add(index);
+                return true;
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Searches the text for every pattern at once and hands each match to
+     * the sink as soon as it is found.
+     *
+     * Matches are reported in increasing order of the index where they end.
+     * Matches that end at the same index are reported longest pattern first.
+     *
+     * @param text the body of text where you search for the patterns
+     * @param sink the callback that receives each pattern id and match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     */
+    public void search(CharSequence text, MultiMatchSink sink) {
+        if (text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot perform Aho-Corasick with null argument");
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int c = classes.classOf(text.charAt(i));
+            if (c < 0) {
+                node = 0;
+            } else if (transitions != null) {
+                node = transitions[node * classCount + c];
+            } else {
+                int next = child(node, c);
+                while (next < 0 && node != 0) {
+                    node = failure[node];
+                    next = child(node, c);
+                }
+                node = next < 0 ? 0 : next;
+            }
+            int output = nodePattern[node] >= 0 ? node : outputLink[node];
+            while (output >= 0) {
+                for (int id = nodePattern[output]; id >= 0; id = samePattern[id]) {
+                    if (!sink.onMatch(id, i - patterns[id].length() + 1)) {
+                        return;
+                    }
+                }
+                output = outputLink[output];
+            }
+        }
+    }
+
+    /**
+     * Computes the failure links breadth first and folds them into the
+     * transitions, so that every node has a transition for every class.
+     *
+     * @param nodes the number of nodes in the trie
+     */
+    private void buildFailureLinks(int nodes) {
+        int[] failure = new int[nodes];
+        int[] queue = new int[nodes];
+        int head = 0;
+        int tail = 0;
+        outputLink[0] = -1;
+        for (int c = 0; c < classCount; c++) {
+            int child = transitions[c];
+            if (child == -1) {
+                transitions[c] = 0;
+            } else {
+                failure[child] = 0;
+                outputLink[child] = -1;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int c = 0; c < classCount; c++) {
+                int slot = node * classCount + c;
+                int child = transitions[slot];
+                int fallback = transitions[failure[node] * classCount + c];
+                if (child == -1) {
+                    transitions[slot] = fallback;
+                } else {
+                    failure[child] = fallback;
+                    outputLink[child] = nodePattern[fallback] >= 0 ? fallback : outputLink[fallback];
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the failure links over the breadth first numbering, following
+     * the failure links of each node's parent until one has a child for the
+     * same class. The parent and its failure links come earlier in the
+     * numbering, so they are already known.
+     *
+     * @param nodes the number of nodes in the trie
+     */
+    private void buildSparseFailureLinks(int nodes) {
+        outputLink[0] = -1;
+        for (int node = 0; node < nodes; node++) {
+            for (int child = firstChild[node]; child < firstChild[node + 1]; child++) {
+                int fallback = 0;
+                if (node != 0) {
+                    int c = edgeClass[child];
+                    int state = failure[node];
+                    fallback = child(state, c);
+                    while (fallback < 0 && state != 0) {
+                        state = failure[state];
+                        fallback = child(state, c);
+                    }
+                    fallback = fallback < 0 ? 0 : fallback;
+                }
+                failure[child] = fallback;
+                outputLink[child] = node == 0 ? -1
+                        : nodePattern[fallback] >= 0 ? fallback : outputLink[fallback];
+            }
+        }
+    }
+
+    /**
+     * Finds the child of a node of the sparse automaton along the edge of a
+     * class.
+     *
+     * @param node the parent node
+     * @param c    the class of the edge
+     * @return the child, or -1 if the node has no edge for the class
+     */
+    private int child(int node, int c) {
+        if (node == 0) {
+            return rootChildren[c];
+        }
+        int low = firstChild[node];
+        int high = firstChild[node + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (edgeClass[mid] < c) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < firstChild[node + 1] && edgeClass[low] == c ? low : -1;
+    }
+
+    /**
+     * Finds the child of a node along the edge of a class while the trie is
+     * being built.
+     *
+     * @param keys     the keys of the hash table
+     * @param children the children of the hash table
+     * @param mask     the number of slots minus one
+     * @param node     the parent node
+     * @param c        the class of the edge
+     * @return the child, or -1 if the node has no edge for the class
+     */
+    private static int child(long[] keys, int[] children, int mask, int node,
+                             int c) {
+        long key = (long) node << Integer.SIZE | c;
+        for (int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return children[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an edge to the hash table. The edge must not be in it already.
+     *
+     * @param keys     the keys of the hash table
+     * @param children the children of the hash table
+     * @param mask     the number of slots minus one
+     * @param node     the parent node
+     * @param c        the class of the edge
+     * @param child    the node the edge leads to
+     */
+    private static void insert(long[] keys, int[] children, int mask,
+                               int node, int c, int child) {
+        long key = (long) node << Integer.SIZE | c;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        children[slot] = child;
+    }
+
+    /**
+     * Returns the home slot of a key, mixing its bits so that the edges of
+     * neighbouring nodes spread over the table.
+     *
+     * @param key  the packed node and class
+     * @param mask the number of slots minus one
+     * @return the slot the key is probed from
+     */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
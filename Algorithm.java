@@ -0,0 +1,91 @@
+/**
+ * The single pattern string searching algorithms, each of which can compile
+ * a pattern for repeated searching.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public enum Algorithm {
+
+    /**
+     * Knuth-Morris-Pratt, see PatternMatching.kmp().
+     */
+    KMP {
+        @Override
+        public CompiledPattern compile(CharSequence pattern,
+                                       CharacterComparator comparator) {
+            return new CompiledKmp(pattern, comparator);
+        }
+    },
+
+    /**
+     * Boyer Moore with the last occurrence table only, see
+     * PatternMatching.boyerMoore().
+     */
+    BOYER_MOORE {
+        @Override
+        public CompiledPattern compile(CharSequence pattern,
+                                       CharacterComparator comparator) {
+            return new CompiledBoyerMoore(pattern, comparator);
+        }
+    },
+
+    /**
+     * Boyer Moore with the good suffix and Galil rules, see
+     * PatternMatching.boyerMooreGalil().
+     */
+    BOYER_MOORE_GALIL {
+        @Override
+        public CompiledPattern compile(CharSequence pattern,
+                                       CharacterComparator comparator) {
+            return new CompiledBoyerMooreGalil(pattern, comparator);
+        }
+    },
+
+    /**
+     * Rabin-Karp with an int hash, see PatternMatching.rabinKarp().
+     */
+    RABIN_KARP {
+        @Override
+        public CompiledPattern compile(CharSequence pattern,
+                                       CharacterComparator comparator) {
+            return new CompiledRabinKarp(pattern, comparator);
+        }
+    },
+
+    /**
+     * Rabin-Karp with a hash modulo 2^61 - 1, see
+     * PatternMatching.rabinKarpModular().
+     */
+    RABIN_KARP_MODULAR {
+        @Override
+        public CompiledPattern compile(CharSequence pattern,
+                                       CharacterComparator comparator) {
+            return new CompiledModularRabinKarp(pattern, comparator);
+        }
+    },
+
+    /**
+     * Shift-Or, see PatternMatching.bitap().
+     */
+    BITAP {
+        @Override
+        public CompiledPattern compile(CharSequence pattern,
+                                       CharacterComparator comparator) {
+            return new CompiledBitap(pattern, comparator);
+        }
+    };
+
+    /**
+     * Compiles the pattern for this algorithm.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @return the compiled pattern
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public abstract CompiledPattern compile(CharSequence pattern,
+                                            CharacterComparator comparator);
+}
@@ -0,0 +1,329 @@
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Byte oriented versions of the string searching algorithms in
+ * PatternMatching, for searching raw ASCII or UTF-8 data without decoding it
+ * to a String first.
+ *
+ * Bytes are compared as the Latin-1 characters with the same value, so the
+ * usual CharacterComparator decides which bytes are equal. Because UTF-8
+ * never uses the bytes of an ASCII character inside a multi-byte sequence,
+ * and a valid UTF-8 pattern can only match at character boundaries, an
+ * exact search for a UTF-8 encoded pattern finds the same matches as
+ * searching the decoded text; the indices are byte offsets.
+ *
+ * ByteBuffers are searched between their position and limit, with indices
+ * relative to the position, and are left unchanged. Heap buffers are
+ * searched through their backing array and direct buffers in place.
+ *
+ * To search many inputs for the same pattern, compile it once with one of
+ * the CompiledBytePattern subclasses instead.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class BytePatternMatching {
+
+    /**
+     * Runs the Knuth-Morris-Pratt (KMP) algorithm over a byte array.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> kmp(byte[] pattern, byte[] text,
+                                    CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        kmp(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Runs the Knuth-Morris-Pratt (KMP) algorithm over a byte array and hands
+     * the starting index of each match to the given sink, stopping early once
+     * the sink returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void kmp(byte[] pattern, byte[] text,
+                           CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteKmp(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Runs the Knuth-Morris-Pratt (KMP) algorithm over a byte buffer.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> kmp(byte[] pattern, ByteBuffer text,
+                                    CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        kmp(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Runs the Knuth-Morris-Pratt (KMP) algorithm over a byte buffer and hands
+     * the starting index of each match to the given sink, stopping early once
+     * the sink returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void kmp(byte[] pattern, ByteBuffer text,
+                           CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteKmp(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm over a byte array.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> boyerMoore(byte[] pattern, byte[] text,
+                                           CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        boyerMoore(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm over a byte array and hands the starting
+     * index of each match to the given sink, stopping early once the sink
+     * returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void boyerMoore(byte[] pattern, byte[] text,
+                                  CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteBoyerMoore(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm over a byte buffer.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> boyerMoore(byte[] pattern, ByteBuffer text,
+                                           CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        boyerMoore(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm over a byte buffer and hands the starting
+     * index of each match to the given sink, stopping early once the sink
+     * returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void boyerMoore(byte[] pattern, ByteBuffer text,
+                                  CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteBoyerMoore(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Runs the Rabin-Karp algorithm over a byte array.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> rabinKarp(byte[] pattern, byte[] text,
+                                          CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        rabinKarp(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Runs the Rabin-Karp algorithm over a byte array and hands the starting
+     * index of each match to the given sink, stopping early once the sink
+     * returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void rabinKarp(byte[] pattern, byte[] text,
+                                 CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteRabinKarp(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Runs the Rabin-Karp algorithm over a byte buffer.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> rabinKarp(byte[] pattern, ByteBuffer text,
+                                          CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        rabinKarp(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Runs the Rabin-Karp algorithm over a byte buffer and hands the starting
+     * index of each match to the given sink, stopping early once the sink
+     * returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void rabinKarp(byte[] pattern, ByteBuffer text,
+                                 CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteRabinKarp(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Searches a byte array by scanning eight positions at a time for the
+     * pattern's first and last bytes and verifying only the positions where
+     * both match. Falls back to Boyer Moore when the comparator is not the
+     * plain CharacterComparator. See CompiledByteFirstLast.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> firstLast(byte[] pattern, byte[] text,
+                                          CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        firstLast(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Searches a byte array with the first and last byte filter and hands the
+     * starting index of each match to the given sink, stopping early once
+     * the sink returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the bytes where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void firstLast(byte[] pattern, byte[] text,
+                                 CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteFirstLast(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Searches a byte buffer by scanning eight positions at a time for the
+     * pattern's first and last bytes and verifying only the positions where
+     * both match. Falls back to Boyer Moore when the comparator is not the
+     * plain CharacterComparator. See CompiledByteFirstLast.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> firstLast(byte[] pattern, ByteBuffer text,
+                                          CharacterComparator comparator) {
+        IntMatchList list = new IntMatchList();
+        firstLast(pattern, text, comparator, list);
+        return list.asList();
+    }
+
+    /**
+     * Searches a byte buffer with the first and last byte filter and hands the
+     * starting index of each match to the given sink, stopping early once
+     * the sink returns false.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param text       the buffer where you search for the pattern
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void firstLast(byte[] pattern, ByteBuffer text,
+                                 CharacterComparator comparator, MatchSink sink) {
+        new CompiledByteFirstLast(pattern, comparator).search(text, sink);
+    }
+}
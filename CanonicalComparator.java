@@ -0,0 +1,32 @@
+/**
+ * CharacterComparator whose notion of equality is defined by mapping every
+ * character to a canonical form: two characters are equal exactly when their
+ * canonical forms are the same char.
+ *
+ * Comparators of this kind can be applied to characters one at a time, which
+ * is what hashing and table lookups need. Rabin-Karp hashes and Boyer Moore
+ * last occurrence tables are keyed on canonical characters, so a text never
+ * has to be normalised into a copy before it is searched.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public abstract class CanonicalComparator extends CharacterComparator {
+
+    /**
+     * Maps a character to the canonical form of every character equal to it.
+     * Must always return the same char for the same input.
+     *
+     * @param c the character to canonicalise
+     * @return the canonical form of c
+     */
+    public abstract char canonicalize(char c);
+
+    @Override
+    public final int compare(Character a, Character b) {
+        if (a == null || b == null) {
+            return super.compare(a, b);
+        }
+        return super.compare(canonicalize(a), canonicalize(b));
+    }
+}
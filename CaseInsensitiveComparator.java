@@ -0,0 +1,48 @@
+/**
+ * CharacterComparator that treats the ASCII letters A-Z and a-z as equal to
+ * the other case of the same letter. Every other character is only equal to
+ * itself. The canonical form of a letter is its lower case.
+ *
+ * The class is final so that EquivalenceTable can rely on exactly this
+ * definition of equality: the classes of a pattern's characters are known
+ * up front, and characters outside the pattern never need to be compared.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public final class CaseInsensitiveComparator extends CanonicalComparator {
+
+    private static final int CASE_OFFSET = 'a' - 'A';
+
+    @Override
+    public char canonicalize(char c) {
+        return toLowerCase(c);
+    }
+
+    /**
+     * Lower-cases an ASCII letter and leaves every other character as is.
+     *
+     * @param c the character to lower-case
+     * @return the lower-case letter if c is an upper-case ASCII letter,
+     * otherwise c
+     */
+    public static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + CASE_OFFSET) : c;
+    }
+
+    /**
+     * Returns the other case of an ASCII letter.
+     *
+     * @param c the character to flip
+     * @return the other case if c is an ASCII letter, otherwise c
+     */
+    static char otherCase(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + CASE_OFFSET);
+        }
+        if (c >= 'a' && c <= 'z') {
+            return (char) (c - CASE_OFFSET);
+        }
+        return c;
+    }
+}
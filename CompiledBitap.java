@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ * Shift-Or (bitap) pattern that tracks every partial match at once in the
+ * bits of a machine word.
+ *
+ * Bit i of the state is 0 when the last i + 1 characters of the text match
+ * the first i + 1 characters of the pattern. Each text character costs one
+ * shift and one OR with the mask of its character class, with no branching
+ * on mismatches. Patterns of up to 64 characters fit in a single long;
+ * longer patterns spread the state over several longs.
+ *
+ * The masks are indexed by the classes of an EquivalenceTable, so the
+ * comparator is consulted once per distinct character rather than once per
+ * comparison.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledBitap extends CompiledPattern {
+
+    /**
+     * The longest pattern that fits in a single word of state.
+     */
+    public static final int WORD_SIZE = Long.SIZE;
+
+    private final int words;
+    // masks[(class + 1) * words + w] is word w of the mask for that class;
+    // the row for class -1 is all ones since such chars match nothing
+    private final long[] masks;
+
+    /**
+     * Compiles the pattern by building the mask of each character class.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledBitap(CharSequence pattern, CharacterComparator comparator) {
+        super(pattern, comparator);
+        String compiled = getPattern();
+        EquivalenceTable classes = getClasses();
+        int[] patternClasses = getPatternClasses();
+        words = (compiled.length() + WORD_SIZE - 1) / WORD_SIZE;
+        masks = new long[(classes.size() + 1) * words];
+        Arrays.fill(masks, ~0L);
+        for (int i = 0; i < compiled.length(); i++) {
+            int row = patternClasses[i] + 1;
+            masks[row * words + i / WORD_SIZE] &= ~(1L << (i % WORD_SIZE));
+        }
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        if (words == 1) {
+            scanWord(text, from, to, sink);
+        } else {
+            scanWords(text, from, to, sink);
+        }
+    }
+
+    /**
+     * Scans with the whole state in one long.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     */
+    private void scanWord(CharSequence text, int from, int to, MatchSink sink) {
+        int m = length();
+        long found = 1L << (m - 1);
+        long state = ~0L;
+        EquivalenceTable classes = getClasses();
+        for (int i = from; i < to; i++) {
+            state = (state << 1) | masks[classes.classOf(text.charAt(i)) + 1];
+            if ((state & found) == 0) {
+                if (!sink.onMatch(i - m + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans with the state spread over several longs, lowest bits first.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     */
+    private void scanWords(CharSequence text, int from, int to, MatchSink sink) {
+        int m = length();
+        int last = words - 1;
+        long found = 1L << ((m - 1) % WORD_SIZE);
+        long[] state = new long[words];
+        Arrays.fill(state, ~0L);
+        EquivalenceTable classes = getClasses();
+        for (int i = from; i < to; i++) {
+            int row = (classes.classOf(text.charAt(i)) + 1) * words;
+            for (int w = last; w > 0; w--) {
+                state[w] = (state[w] << 1) | (state[w - 1] >>> (WORD_SIZE - 1)) | masks[row + w];
+            }
+            state[0] = (state[0] << 1) | masks[row];
+            if ((state[last] & found) == 0) {
+                if (!sink.onMatch(i - m + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Boyer Moore pattern whose last occurrence table is built once and reused
+ * for every search.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledBoyerMoore extends CompiledPattern {
+
+    private final LastOccurrenceTable lastTable;
+
+    /**
+     * Compiles the pattern by building its last occurrence table.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledBoyerMoore(CharSequence pattern,
+                              CharacterComparator comparator) {
+        super(pattern, comparator);
+        lastTable = new LastOccurrenceTable(getPattern(), getClasses());
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        EquivalenceTable classes = getClasses();
+        int[] pattern = getPatternClasses();
+        int start = from;
+        int j = pattern.length - 1;
+        int check = start + j;
+        while (start <= to - pattern.length) {
+            int textClass = classes.classOf(text.charAt(check));
+            if (pattern[j] == textClass) {
+                if (check == start) {
+                    if (!sink.onMatch(start)) {
+                        return;
+                    }
+                    start++;
+                    check = start + pattern.length - 1;
+                    j = pattern.length - 1;
+                } else {
+                    check--;
+                    j--;
+                }
+            } else {
+                int last = lastTable.getByClass(textClass);
+                if (last < j) {
+                    start = check - last;
+                } else {
+                    start++;
+                }
+                check = start + pattern.length - 1;
+                j = pattern.length - 1;
+            }
+        }
+    }
+}
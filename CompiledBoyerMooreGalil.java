@@ -0,0 +1,64 @@
+/**
+ * Boyer Moore pattern that uses the last occurrence table together with the
+ * strong good suffix rule and the Galil rule, giving a worst case that is
+ * linear in the length of the text. Both tables are built once and reused
+ * for every search.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledBoyerMooreGalil extends CompiledPattern {
+
+    private final LastOccurrenceTable lastTable;
+    private final int[] goodSuffixTable;
+
+    /**
+     * Compiles the pattern by building its last occurrence and good suffix
+     * tables.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledBoyerMooreGalil(CharSequence pattern,
+                                   CharacterComparator comparator) {
+        super(pattern, comparator);
+        lastTable = new LastOccurrenceTable(getPattern(), getClasses());
+        goodSuffixTable = PatternMatching.buildGoodSuffixTable(getPattern(), comparator);
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        EquivalenceTable classes = getClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int period = goodSuffixTable[0];
+        int start = from;
+        // pattern indices [0, known) are already known to match at start
+        int known = 0;
+        while (start <= to - m) {
+            int j = m - 1;
+            int textClass = 0;
+            while (j >= known) {
+                textClass = classes.classOf(text.charAt(start + j));
+                if (pattern[j] != textClass) {
+                    break;
+                }
+                j--;
+            }
+            if (j < known) {
+                if (!sink.onMatch(start)) {
+                    return;
+                }
+                start += period;
+                known = m - period;
+            } else {
+                int badCharacter = j - lastTable.getByClass(textClass);
+                start += Math.max(goodSuffixTable[j], badCharacter);
+                known = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Boyer Moore byte pattern whose 256 entry last occurrence table is built
+ * once and reused for every search.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledByteBoyerMoore extends CompiledBytePattern {
+
+    private final int[] lastTable;
+
+    /**
+     * Compiles the pattern by building its last occurrence table.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if bytes are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledByteBoyerMoore(byte[] pattern,
+                                  CharacterComparator comparator) {
+        super(pattern, comparator);
+        lastTable = buildLastTable();
+    }
+
+    @Override
+    protected void scan(byte[] text, int from, int to, MatchSink sink) {
+        int[] byteClasses = getByteClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int start = from;
+        while (start <= to - m) {
+            int j = m - 1;
+            while (j >= 0 && byteClasses[text[start + j] & 0xFF] == pattern[j]) {
+                j--;
+            }
+            if (j < 0) {
+                if (!sink.onMatch(start)) {
+                    return;
+                }
+                start++;
+            } else {
+                start += Math.max(1, j - lastTable[text[start + j] & 0xFF]);
+            }
+        }
+    }
+
+    @Override
+    protected void scan(ByteBuffer text, int from, int to, MatchSink sink) {
+        int[] byteClasses = getByteClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int start = from;
+        while (start <= to - m) {
+            int j = m - 1;
+            while (j >= 0 && byteClasses[text.get(start + j) & 0xFF] == pattern[j]) {
+                j--;
+            }
+            if (j < 0) {
+                if (!sink.onMatch(start)) {
+                    return;
+                }
+                start++;
+            } else {
+                start += Math.max(1, j - lastTable[text.get(start + j) & 0xFF]);
+            }
+        }
+    }
+}
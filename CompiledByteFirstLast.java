@@ -0,0 +1,161 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Byte pattern that scans eight candidate positions at a time for the
+ * pattern's first and last bytes, and only compares the rest of the pattern
+ * at positions where both of them match.
+ *
+ * Eight text bytes are loaded into a long, XORed with the first byte
+ * repeated eight times, and ORed with the same for the eight bytes m - 1
+ * further on and the last byte. A zero byte in the result marks a candidate,
+ * and all zero bytes are found at once with the usual
+ * (x - 0x01..01) & ~x & 0x80..80 test. That test can flag a byte directly
+ * above a real zero as well, but never misses one, and every candidate is
+ * verified, so the result is exact. For random text only about one position
+ * in 65536 survives the filter, so the scan runs at close to eight positions
+ * per step with no data dependent branches.
+ *
+ * The filter relies on bytes being equal only when their values are equal.
+ * For any other comparator the search falls back to Boyer Moore.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledByteFirstLast extends CompiledBytePattern {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    // reads eight bytes of an array as one long without a bounds check per byte
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final CompiledByteBoyerMoore fallback;
+    private final byte[] pattern;
+    private final long firstBytes;
+    private final long lastBytes;
+
+    /**
+     * Compiles the pattern, or the Boyer Moore fallback if the comparator is
+     * not the plain CharacterComparator.
+     *
+     * @param pattern    the bytes you are searching for
+     * @param comparator you MUST use this to check if bytes are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledByteFirstLast(byte[] pattern,
+                                 CharacterComparator comparator) {
+        super(pattern, comparator);
+        this.pattern = getPattern();
+        if (EquivalenceTable.isIdentity(comparator)) {
+            fallback = null;
+        } else {
+            fallback = new CompiledByteBoyerMoore(pattern, comparator);
+        }
+        firstBytes = (this.pattern[0] & 0xFFL) * ONES;
+        lastBytes = (this.pattern[this.pattern.length - 1] & 0xFFL) * ONES;
+    }
+
+    @Override
+    protected void scan(byte[] text, int from, int to, MatchSink sink) {
+        if (fallback != null) {
+            fallback.scan(text, from, to, sink);
+            return;
+        }
+        int m = pattern.length;
+        int start = from;
+        while (start + Long.BYTES + m - 1 <= to) {
+            long candidates = candidates((long) LONGS.get(text, start), (long) LONGS.get(text, start + m - 1));
+            while (candidates != 0) {
+                int index = start + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (verify(text, index) && !sink.onMatch(index)) {
+                    return;
+                }
+                candidates &= candidates - 1;
+            }
+            start += Long.BYTES;
+        }
+        for (; start <= to - m; start++) {
+            if (verify(text, start) && !sink.onMatch(start)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected void scan(ByteBuffer text, int from, int to, MatchSink sink) {
+        if (fallback != null) {
+            fallback.scan(text, from, to, sink);
+            return;
+        }
+        ByteBuffer words = text.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int m = pattern.length;
+        int start = from;
+        while (start + Long.BYTES + m - 1 <= to) {
+            long candidates = candidates(words.getLong(start), words.getLong(start + m - 1));
+            while (candidates != 0) {
+                int index = start + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (verify(words, index) && !sink.onMatch(index)) {
+                    return;
+                }
+                candidates &= candidates - 1;
+            }
+            start += Long.BYTES;
+        }
+        for (; start <= to - m; start++) {
+            if (verify(words, start) && !sink.onMatch(start)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marks the positions in a word where both the first and the last byte
+     * of the pattern may match.
+     *
+     * @param firsts the eight text bytes at the candidate positions
+     * @param lasts  the eight text bytes m - 1 after the candidate positions
+     * @return a word with the high bit of byte k set if position k is a
+     * candidate
+     */
+    private long candidates(long firsts, long lasts) {
+        long mismatches = (firsts ^ firstBytes) | (lasts ^ lastBytes);
+        return (mismatches - ONES) & ~mismatches & HIGHS;
+    }
+
+    /**
+     * Checks whether the whole pattern matches at the given index.
+     *
+     * @param text  the bytes being searched
+     * @param start the index to check
+     * @return true if the pattern matches there
+     */
+    private boolean verify(byte[] text, int start) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (text[start + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the whole pattern matches at the given index.
+     *
+     * @param text  the buffer being searched
+     * @param start the index to check
+     * @return true if the pattern matches there
+     */
+    private boolean verify(ByteBuffer text, int start) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (text.get(start + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
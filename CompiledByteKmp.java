@@ -0,0 +1,88 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Knuth-Morris-Pratt (KMP) byte pattern whose failure table is built once
+ * and reused for every search.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledByteKmp extends CompiledBytePattern {
+
+    private final int[] failureTable;
+
+    /**
+     * Compiles the pattern by building its failure table.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if bytes are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledByteKmp(byte[] pattern, CharacterComparator comparator) {
+        super(pattern, comparator);
+        int[] classes = getPatternClasses();
+        failureTable = new int[classes.length];
+        int i = 0;
+        int j = 1;
+        while (j < classes.length) {
+            if (classes[i] == classes[j]) {
+                failureTable[j] = i + 1;
+                i++;
+                j++;
+            } else if (i != 0) {
+                i = failureTable[i - 1];
+            } else {
+                failureTable[j] = 0;
+                j++;
+            }
+        }
+    }
+
+    @Override
+    protected void scan(byte[] text, int from, int to, MatchSink sink) {
+        int[] byteClasses = getByteClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int j = 0;
+        for (int i = from; i < to; i++) {
+            int c = byteClasses[text[i] & 0xFF];
+            while (j > 0 && c != pattern[j]) {
+                j = failureTable[j - 1];
+            }
+            if (c == pattern[j]) {
+                j++;
+                if (j == m) {
+                    if (!sink.onMatch(i - m + 1)) {
+                        return;
+                    }
+                    j = failureTable[j - 1];
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void scan(ByteBuffer text, int from, int to, MatchSink sink) {
+        int[] byteClasses = getByteClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int j = 0;
+        for (int i = from; i < to; i++) {
+            int c = byteClasses[text.get(i) & 0xFF];
+            while (j > 0 && c != pattern[j]) {
+                j = failureTable[j - 1];
+            }
+            if (c == pattern[j]) {
+                j++;
+                if (j == m) {
+                    if (!sink.onMatch(i - m + 1)) {
+                        return;
+                    }
+                    j = failureTable[j - 1];
+                }
+            }
+        }
+    }
+}
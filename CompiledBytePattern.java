@@ -0,0 +1,356 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A byte pattern whose preprocessing has already been done, so it can be
+ * searched for in any number of byte buffers without rebuilding its tables.
+ *
+ * Bytes are compared as the Latin-1 characters with the same value, so the
+ * usual CharacterComparator decides which bytes are equal. The comparator is
+ * consulted once per byte value when the pattern is compiled, and the
+ * searches afterwards compare class ids from a 256 entry table.
+ *
+ * Byte arrays and heap buffers are searched through their backing array,
+ * and direct buffers through absolute gets, so neither is ever copied.
+ *
+ * Compiled byte patterns are immutable and may be shared between threads.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public abstract class CompiledBytePattern {
+
+    /**
+     * The number of distinct byte values.
+     */
+    protected static final int BYTE_VALUES = 256;
+
+    private final byte[] pattern;
+    private final CharacterComparator comparator;
+    private final int[] byteClasses;
+    private final int[] patternClasses;
+    private final int classCount;
+
+    /**
+     * Stores the pattern and classifies every byte value.
+     *
+     * @param pattern    the pattern that will be searched for
+     * @param comparator the comparator used to check if bytes are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    protected CompiledBytePattern(byte[] pattern,
+                                  CharacterComparator comparator) {
+        if (pattern == null || pattern.length == 0) {
+            throw new IllegalArgumentException("Invalid pattern to compile");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Cannot compile a pattern with a null comparator");
+        }
+        this.pattern = pattern.clone();
+        this.comparator = comparator;
+        StringBuilder alphabet = new StringBuilder(pattern.length);
+        for (byte b : pattern) {
+            alphabet.append((char) (b & 0xFF));
+        }
+        EquivalenceTable classes = new EquivalenceTable(alphabet, comparator);
+        classCount = classes.size();
+        byteClasses = new int[BYTE_VALUES];
+        for (int b = 0; b < BYTE_VALUES; b++) {
+            byteClasses[b] = classes.classOf((char) b);
+        }
+        patternClasses = new int[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            patternClasses[i] = byteClasses[pattern[i] & 0xFF];
+        }
+    }
+
+    /**
+     * Returns a copy of the pattern this object was compiled from.
+     *
+     * @return the pattern
+     */
+    public byte[] getPattern() {
+        return pattern.clone();
+    }
+
+    /**
+     * Returns the comparator this object was compiled with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the length of the compiled pattern.
+     *
+     * @return the length of the pattern
+     */
+    public int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Searches the whole array for the pattern.
+     *
+     * @param text the bytes to search
+     * @param sink the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     */
+    public void search(byte[] text, MatchSink sink) {
+        if (text == null) {
+            throw new IllegalArgumentException("Cannot search a null text");
+        }
+        search(text, 0, text.length, sink);
+    }
+
+    /**
+     * Searches the region [from, to) of the array for the pattern. Only
+     * matches that lie entirely inside the region are reported.
+     *
+     * @param text the bytes to search
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     * @throws java.lang.IllegalArgumentException if the region is not within
+     *                                            the array
+     */
+    public void search(byte[] text, int from, int to, MatchSink sink) {
+        if (text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search with a null argument");
+        }
+        if (from < 0 || to > text.length || from > to) {
+            throw new IllegalArgumentException("Invalid region [" + from + ", " + to
+                    + ") for array of length " + text.length);
+        }
+        if (to - from >= pattern.length) {
+            scan(text, from, to, sink);
+        }
+    }
+
+    /**
+     * Searches the bytes between the buffer's position and limit for the
+     * pattern. Match indices are relative to the position, and the buffer's
+     * position, limit and mark are left unchanged.
+     *
+     * @param text the buffer to search
+     * @param sink the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     */
+    public void search(ByteBuffer text, MatchSink sink) {
+        if (text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search with a null argument");
+        }
+        final int base = text.position();
+        final MatchSink target = sink;
+        search(text, base, text.limit(), base == 0 ? sink : new MatchSink() {
+            @Override
+            public boolean onMatch(int index) {
+                return target.onMatch(index - base);
+            }
+        });
+    }
+
+    /**
+     * Searches the region [from, to) of the buffer for the pattern, using
+     * absolute indices that ignore the buffer's position. Only matches that
+     * lie entirely inside the region are reported.
+     *
+     * @param text the buffer to search
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     * @throws java.lang.IllegalArgumentException if the region is not within
+     *                                            the buffer's limit
+     */
+    public void search(ByteBuffer text, int from, int to, MatchSink sink) {
+        if (text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search with a null argument");
+        }
+        if (from < 0 || to > text.limit() || from > to) {
+            throw new IllegalArgumentException("Invalid region [" + from + ", " + to
+                    + ") for buffer with limit " + text.limit());
+        }
+        if (to - from < pattern.length) {
+            return;
+        }
+        if (text.hasArray()) {
+            final int offset = text.arrayOffset();
+            final MatchSink target = sink;
+            scan(text.array(), offset + from, offset + to, offset == 0 ? sink : new MatchSink() {
+                @Override
+                public boolean onMatch(int index) {
+                    return target.onMatch(index - offset);
+                }
+            });
+        } else {
+            scan(text, from, to, sink);
+        }
+    }
+
+    /**
+     * Checks whether the pattern occurs anywhere in the array. The search
+     * stops at the first match.
+     *
+     * @param text the bytes to search
+     * @return true if the pattern occurs in the array
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public boolean contains(byte[] text) {
+        return indexOf(text) >= 0;
+    }
+
+    /**
+     * Finds the first match of the pattern in the array. The search stops
+     * at that match.
+     *
+     * @param text the bytes to search
+     * @return the starting index of the first match, or -1 if there is none
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public int indexOf(byte[] text) {
+        CompiledPattern.FirstMatch first = new CompiledPattern.FirstMatch();
+        search(text, first);
+        return first.index;
+    }
+
+    /**
+     * Counts the matches of the pattern in the array, overlapping ones
+     * included, without storing them.
+     *
+     * @param text the bytes to search
+     * @return the number of matches
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public int count(byte[] text) {
+        CompiledPattern.MatchCounter counter = new CompiledPattern.MatchCounter();
+        search(text, counter);
+        return counter.count;
+    }
+
+    /**
+     * Checks whether the pattern occurs between the buffer's position and
+     * limit. The search stops at the first match, and the buffer is left
+     * unchanged.
+     *
+     * @param text the buffer to search
+     * @return true if the pattern occurs in the buffer
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public boolean contains(ByteBuffer text) {
+        return indexOf(text) >= 0;
+    }
+
+    /**
+     * Finds the first match of the pattern between the buffer's position
+     * and limit. The search stops at that match, and the buffer is left
+     * unchanged.
+     *
+     * @param text the buffer to search
+     * @return the index of the first match relative to the position, or -1
+     * if there is none
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public int indexOf(ByteBuffer text) {
+        CompiledPattern.FirstMatch first = new CompiledPattern.FirstMatch();
+        search(text, first);
+        return first.index;
+    }
+
+    /**
+     * Counts the matches of the pattern between the buffer's position and
+     * limit, overlapping ones included, without storing them.
+     *
+     * @param text the buffer to search
+     * @return the number of matches
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public int count(ByteBuffer text) {
+        CompiledPattern.MatchCounter counter = new CompiledPattern.MatchCounter();
+        search(text, counter);
+        return counter.count;
+    }
+
+    /**
+     * Runs the algorithm over the region [from, to) of the array. The
+     * arguments have already been checked, and the region is at least as
+     * long as the pattern.
+     *
+     * @param text the bytes to search
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     */
+    protected abstract void scan(byte[] text, int from, int to,
+                                 MatchSink sink);
+
+    /**
+     * Runs the algorithm over the region [from, to) of a buffer without an
+     * accessible array, such as a direct or read-only buffer. The
+     * arguments have already been checked, and the region is at least as
+     * long as the pattern.
+     *
+     * @param text the buffer to search
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     */
+    protected abstract void scan(ByteBuffer text, int from, int to,
+                                 MatchSink sink);
+
+    /**
+     * Returns the class of each byte value, or -1 for byte values that are
+     * not equal to any byte of the pattern. The array is shared, so it must
+     * not be modified.
+     *
+     * @return the class of each byte value
+     */
+    protected int[] getByteClasses() {
+        return byteClasses;
+    }
+
+    /**
+     * Returns the class of each byte of the pattern. The array is shared,
+     * so it must not be modified.
+     *
+     * @return the class of each pattern byte
+     */
+    protected int[] getPatternClasses() {
+        return patternClasses;
+    }
+
+    /**
+     * Returns the number of classes of equal bytes in the pattern.
+     *
+     * @return the number of classes
+     */
+    protected int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Builds the 256 entry last occurrence table of the pattern, holding for
+     * every byte value the last index of an equal byte in the pattern, or -1.
+     *
+     * @return the last occurrence table
+     */
+    protected int[] buildLastTable() {
+        int[] lastByClass = new int[classCount];
+        for (int i = 0; i < patternClasses.length; i++) {
+            lastByClass[patternClasses[i]] = i;
+        }
+        int[] lastTable = new int[BYTE_VALUES];
+        Arrays.fill(lastTable, -1);
+        for (int b = 0; b < BYTE_VALUES; b++) {
+            if (byteClasses[b] >= 0) {
+                lastTable[b] = lastByClass[byteClasses[b]];
+            }
+        }
+        return lastTable;
+    }
+}
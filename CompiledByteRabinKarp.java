@@ -0,0 +1,96 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Rabin-Karp byte pattern whose hash and BASE ^ (m - 1) are computed once
+ * and reused for every search.
+ *
+ * Bytes are hashed by their class rather than their value, so two windows
+ * the comparator considers equal always hash the same.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledByteRabinKarp extends CompiledBytePattern {
+
+    private final int patternHash;
+    private final int maxExponent;
+
+    /**
+     * Compiles the pattern by computing its rolling hash.
+     *
+     * @param pattern    the bytes you're searching for
+     * @param comparator you MUST use this to check if bytes are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledByteRabinKarp(byte[] pattern,
+                                 CharacterComparator comparator) {
+        super(pattern, comparator);
+        int[] classes = getPatternClasses();
+        int hash = 0;
+        int exponent = 1;
+        for (int i = 0; i < classes.length; i++) {
+            hash = hash * PatternMatching.BASE + classes[i] + 1;
+            if (i > 0) {
+                exponent *= PatternMatching.BASE;
+            }
+        }
+        patternHash = hash;
+        maxExponent = exponent;
+    }
+
+    @Override
+    protected void scan(byte[] text, int from, int to, MatchSink sink) {
+        int[] byteClasses = getByteClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int textHash = 0;
+        for (int i = from; i < from + m; i++) {
+            textHash = textHash * PatternMatching.BASE + byteClasses[text[i] & 0xFF] + 1;
+        }
+        for (int start = from; start <= to - m; start++) {
+            if (start != from) {
+                int removed = (byteClasses[text[start - 1] & 0xFF] + 1) * maxExponent;
+                textHash = (textHash - removed) * PatternMatching.BASE
+                        + byteClasses[text[start + m - 1] & 0xFF] + 1;
+            }
+            if (patternHash == textHash) {
+                int i = 0;
+                while (i < m && byteClasses[text[start + i] & 0xFF] == pattern[i]) {
+                    i++;
+                }
+                if (i == m && !sink.onMatch(start)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void scan(ByteBuffer text, int from, int to, MatchSink sink) {
+        int[] byteClasses = getByteClasses();
+        int[] pattern = getPatternClasses();
+        int m = pattern.length;
+        int textHash = 0;
+        for (int i = from; i < from + m; i++) {
+            textHash = textHash * PatternMatching.BASE + byteClasses[text.get(i) & 0xFF] + 1;
+        }
+        for (int start = from; start <= to - m; start++) {
+            if (start != from) {
+                int removed = (byteClasses[text.get(start - 1) & 0xFF] + 1) * maxExponent;
+                textHash = (textHash - removed) * PatternMatching.BASE
+                        + byteClasses[text.get(start + m - 1) & 0xFF] + 1;
+            }
+            if (patternHash == textHash) {
+                int i = 0;
+                while (i < m && byteClasses[text.get(start + i) & 0xFF] == pattern[i]) {
+                    i++;
+                }
+                if (i == m && !sink.onMatch(start)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nucleotide pattern that searches PackedDna texts 32 bases at a time, and
+ * can search both strands of the text in the same pass.
+ *
+ * The pattern is packed the same way as the text. At each start position
+ * the 32 text bases from there are pulled out of at most two words with a
+ * couple of shifts and compared with the first 32 pattern bases by a single
+ * xor, so most positions are ruled out by one comparison however long the
+ * pattern is; the rest of a longer pattern is compared a word at a time.
+ * Matches never overlap an ambiguous run, so the text is searched one
+ * unambiguous segment at a time.
+ *
+ * The reverse complement of the pattern is packed as well. A match of it
+ * on the given strand is a match of the pattern on the other strand, so
+ * searchBothStrands() checks both at every position and reports each match
+ * with the strand it was on.
+ *
+ * Characters compare like CaseInsensitiveComparator, so soft masked, lower
+ * case bases match. Texts that are not PackedDna are searched with a
+ * CompiledKmp of the same pattern.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledDnaPattern extends CompiledPattern {
+
+    /**
+     * The strand id searchBothStrands() reports matches of the pattern
+     * itself with.
+     */
+    public static final int FORWARD = 0;
+
+    /**
+     * The strand id searchBothStrands() reports matches of the reverse
+     * complement with.
+     */
+    public static final int REVERSE_COMPLEMENT = 1;
+
+    private static final int BASES_PER_WORD = Long.SIZE / 2;
+
+    private final long[] forward;
+    private final long[] reverse;
+    // the bits of the last word of the packed pattern that hold bases
+    private final long lastMask;
+    private final CompiledKmp fallback;
+
+    /**
+     * Compiles the pattern by packing it and its reverse complement.
+     *
+     * @param pattern the pattern you are searching for, made of ACGT in
+     *                either case
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if the pattern holds a
+     *                                            character other than ACGT
+     */
+    public CompiledDnaPattern(CharSequence pattern) {
+        super(pattern, new CaseInsensitiveComparator());
+        String bases = getPattern();
+        int m = bases.length();
+        forward = new long[(m + BASES_PER_WORD - 1) / BASES_PER_WORD];
+        reverse = new long[forward.length];
+        for (int i = 0; i < m; i++) {
+            long code = PackedDna.code(bases.charAt(i));
+            if (code < 0) {
+                throw new IllegalArgumentException("Invalid base '" + bases.charAt(i) + "' at index " + i
+                        + " of DNA pattern");
+            }
+            int j = m - 1 - i;
+            forward[i / BASES_PER_WORD] |= code << (2 * i);
+            reverse[j / BASES_PER_WORD] |= (code ^ 3) << (2 * j);
+        }
+        int bits = 2 * (m % BASES_PER_WORD);
+        lastMask = bits == 0 ? -1L : (1L << bits) - 1;
+        fallback = new CompiledKmp(bases, getComparator());
+    }
+
+    /**
+     * Searches both strands of the whole text.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return a list holding, at FORWARD and REVERSE_COMPLEMENT, the
+     * starting index of every match on that strand in increasing order
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public List<IntMatchList> searchBothStrands(PackedDna text) {
+        final List<IntMatchList> matches = new ArrayList<>(2);
+        matches.add(new IntMatchList());
+        matches.add(new IntMatchList());
+        searchBothStrands(text, new MultiMatchSink() {
+            @Override
+            public boolean onMatch(int strand, int index) {
+                matches.get(strand).add(index);
+                return true;
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Searches both strands of the whole text in one pass and hands each
+     * match to the sink, with FORWARD or REVERSE_COMPLEMENT as its id,
+     * stopping early once the sink returns false.
+     *
+     * A match of the reverse complement at index i means the pattern occurs
+     * on the other strand, over the same bases i to i + m - 1. Matches are
+     * reported in increasing order of index. A pattern that is its own
+     * reverse complement matches on both strands at once, and both matches
+     * are reported, FORWARD first.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param sink the callback that receives each strand id and match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     */
+    public void searchBothStrands(PackedDna text, MultiMatchSink sink) {
+        if (text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search both strands with a null argument");
+        }
+        int start = 0;
+        for (int run = 0; run < text.ambiguousRunCount(); run++) {
+            if (!scanBothStrands(text, start, text.runStart(run), sink)) {
+                return;
+            }
+            start = text.runEnd(run);
+        }
+        scanBothStrands(text, start, text.length(), sink);
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        if (!(text instanceof PackedDna)) {
+            fallback.search(text, from, to, sink);
+            return;
+        }
+        PackedDna packed = (PackedDna) text;
+        int start = from;
+        for (int run = packed.nextRun(from); run < packed.ambiguousRunCount(); run++) {
+            if (packed.runStart(run) >= to) {
+                break;
+            }
+            if (!scanForward(packed, start, packed.runStart(run), sink)) {
+                return;
+            }
+            start = Math.max(start, packed.runEnd(run));
+        }
+        scanForward(packed, start, to, sink);
+    }
+
+    /**
+     * Searches an unambiguous segment of the text for the pattern. The 32
+     * bases from each position are shifted out of the two words they span,
+     * which are loaded once for every 32 positions.
+     *
+     * @param text  the text
+     * @param start the first index of the segment
+     * @param end   the index after the segment
+     * @param sink  the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     */
+    private boolean scanForward(PackedDna text, int start, int end,
+                                MatchSink sink) {
+        long[] words = text.words();
+        long first = forward[0];
+        long firstMask = forward.length == 1 ? lastMask : -1L;
+        int last = end - length();
+        int i = start;
+        while (i <= last) {
+            int word = i / BASES_PER_WORD;
+            long low = words[word];
+            // pre-shifted by one, because a long shifted by 64 is left as it is
+            long high = words[word + 1] << 1;
+            int stop = Math.min(last, word * BASES_PER_WORD + BASES_PER_WORD - 1);
+            for (; i <= stop; i++) {
+                int shift = 2 * (i % BASES_PER_WORD);
+                long window = low >>> shift | high << (63 - shift);
+                if (((window ^ first) & firstMask) == 0 && matchesRest(text, i, forward)
+                        && !sink.onMatch(i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches an unambiguous segment of the text for the pattern and its
+     * reverse complement at once, sharing the window of every position.
+     *
+     * @param text  the text
+     * @param start the first index of the segment
+     * @param end   the index after the segment
+     * @param sink  the callback that receives each strand id and match index
+     * @return false if the sink stopped the search, true otherwise
+     */
+    private boolean scanBothStrands(PackedDna text, int start, int end,
+                                    MultiMatchSink sink) {
+        long[] words = text.words();
+        long firstForward = forward[0];
+        long firstReverse = reverse[0];
+        long firstMask = forward.length == 1 ? lastMask : -1L;
+        int last = end - length();
+        int i = start;
+        while (i <= last) {
+            int word = i / BASES_PER_WORD;
+            long low = words[word];
+            long high = words[word + 1] << 1;
+            int stop = Math.min(last, word * BASES_PER_WORD + BASES_PER_WORD - 1);
+            for (; i <= stop; i++) {
+                int shift = 2 * (i % BASES_PER_WORD);
+                long window = low >>> shift | high << (63 - shift);
+                if (((window ^ firstForward) & firstMask) == 0 && matchesRest(text, i, forward)
+                        && !sink.onMatch(FORWARD, i)) {
+                    return false;
+                }
+                if (((window ^ firstReverse) & firstMask) == 0 && matchesRest(text, i, reverse)
+                        && !sink.onMatch(REVERSE_COMPLEMENT, i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the words of a packed pattern after the first with the text.
+     *
+     * @param text    the text
+     * @param index   the index the pattern is aligned with
+     * @param pattern the packed pattern, whose first word already matched
+     * @return true if every base of the pattern matches
+     */
+    private boolean matchesRest(PackedDna text, int index, long[] pattern) {
+        int last = pattern.length - 1;
+        for (int w = 1; w <= last; w++) {
+            long bases = text.bases(index + w * BASES_PER_WORD);
+            if (((bases ^ pattern[w]) & (w == last ? lastMask : -1L)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
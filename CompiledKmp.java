@@ -0,0 +1,159 @@
+/**
+ * Knuth-Morris-Pratt (KMP) pattern whose failure table is built once and
+ * reused for every search.
+ *
+ * When the pattern has few classes, the failure table is also expanded into
+ * the full automaton of KMP: a table with a row for every state j, the
+ * length of the pattern prefix matched so far, and a column for every class,
+ * whose entry is the state after reading a character of that class. Where
+ * the failure links would fall back several times on a mismatch, the
+ * automaton already knows where they end up, so the scan does exactly one
+ * table lookup per text character and never branches on a mismatch. The
+ * table takes (m + 1) * (classes + 1) ints, so patterns with more than
+ * MAX_AUTOMATON_CLASSES classes, or whose table would hold more than
+ * MAX_AUTOMATON_ENTRIES entries, keep searching with the failure links.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledKmp extends CompiledPattern {
+
+    /**
+     * The largest number of classes a pattern may have to be searched with
+     * the automaton.
+     */
+    public static final int MAX_AUTOMATON_CLASSES = 32;
+
+    /**
+     * The largest number of entries the automaton may have.
+     */
+    public static final int MAX_AUTOMATON_ENTRIES = 1 << 16;
+
+    private final int[] failureTable;
+    // automaton[row(j) + id + 1] is row(j') of the state j' after reading a
+    // character of class id in state j, where row(j) = j * (classes + 1);
+    // null if the pattern has too many classes
+    private final int[] automaton;
+
+    /**
+     * Compiles the pattern by building its failure table.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledKmp(CharSequence pattern, CharacterComparator comparator) {
+        super(pattern, comparator);
+        failureTable = PatternMatching.buildFailureTable(getPattern(), comparator);
+        int width = getClasses().size() + 1;
+        long entries = (long) (length() + 1) * width;
+        if (width - 1 <= MAX_AUTOMATON_CLASSES && entries <= MAX_AUTOMATON_ENTRIES) {
+            automaton = buildAutomaton(getPatternClasses(), failureTable, width);
+        } else {
+            automaton = null;
+        }
+    }
+
+    /**
+     * Checks whether searches run on the full automaton rather than on the
+     * failure links.
+     *
+     * @return true if the pattern's automaton was built
+     */
+    public boolean hasAutomaton() {
+        return automaton != null;
+    }
+
+    /**
+     * Returns the failure table of the pattern. The array is shared, so it
+     * must not be modified.
+     *
+     * @return the failure table
+     */
+    int[] getFailureTable() {
+        return failureTable;
+    }
+
+    /**
+     * Returns the automaton of the pattern. The entry for state j and class
+     * id is at j * (getClasses().size() + 1) + id + 1, where characters in
+     * no class use column 0, and holds the position of the next state's row
+     * rather than the state itself, so it can be used as the next index
+     * directly. The array is shared, so it must not be modified.
+     *
+     * @return the automaton, or null if the pattern has too many classes
+     */
+    int[] getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * Expands the failure table into the automaton. In state j < m a
+     * character of class pattern[j] leads to state j + 1, and any other
+     * character leads where it would from the state the failure link of j
+     * falls back to. State m, a full match, behaves like the state its
+     * failure link falls back to. Each of those states has a smaller row
+     * that is already filled in.
+     *
+     * @param pattern      the classes of the pattern
+     * @param failureTable the failure table of the pattern
+     * @param width        the number of columns, one more than the number of
+     *                     classes
+     * @return the automaton
+     */
+    private static int[] buildAutomaton(int[] pattern, int[] failureTable,
+                                        int width) {
+        int m = pattern.length;
+        int[] automaton = new int[(m + 1) * width];
+        automaton[pattern[0] + 1] = width;
+        for (int j = 1; j <= m; j++) {
+            int row = j * width;
+            System.arraycopy(automaton, failureTable[j - 1] * width, automaton, row, width);
+            if (j < m) {
+                automaton[row + pattern[j] + 1] = row + width;
+            }
+        }
+        return automaton;
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        EquivalenceTable classes = getClasses();
+        int[] pattern = getPatternClasses();
+        if (automaton != null) {
+            int accept = pattern.length * (classes.size() + 1);
+            int state = 0;
+            for (int i = from; i < to; i++) {
+                state = automaton[state + classes.classOf(text.charAt(i)) + 1];
+                if (state == accept && !sink.onMatch(i - pattern.length + 1)) {
+                    return;
+                }
+            }
+            return;
+        }
+        int check = from;
+        int start = from;
+        int j = 0;
+        while (check < to && to - start >= pattern.length) {
+            if (classes.classOf(text.charAt(check)) == pattern[j]) {
+                check++;
+                j++;
+                if (j >= pattern.length) {
+                    if (!sink.onMatch(start)) {
+                        return;
+                    }
+                    j = failureTable[j - 1];
+                    start = check - j;
+                }
+            } else if (j == 0) {
+                start = start + 1;
+                check = start;
+            } else {
+                j = failureTable[j - 1];
+                start = check - j;
+            }
+        }
+    }
+}
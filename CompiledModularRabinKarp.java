@@ -0,0 +1,157 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rabin-Karp pattern that hashes modulo the Mersenne prime 2^61 - 1 with a
+ * randomly chosen base, instead of letting an int hash wrap around.
+ *
+ * With a random base, two different windows of length m collide with
+ * probability at most m / (2^61 - 1), so character by character
+ * verification practically only runs on real matches, no matter how long
+ * the pattern is. The pattern hash and BASE ^ (m - 1) are computed in O(m)
+ * when the pattern is compiled.
+ *
+ * Characters are hashed by their class in the pattern's EquivalenceTable
+ * plus one, with 0 for characters in no class, the same way
+ * CompiledByteRabinKarp hashes bytes. A window the comparator treats as
+ * equal to the pattern therefore always has the pattern's hash, and a class
+ * lookup is cheaper than mapping each character to its canonical char.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledModularRabinKarp extends CompiledPattern {
+
+    /**
+     * The Mersenne prime 2^61 - 1 that every hash is reduced modulo.
+     */
+    public static final long MODULUS = (1L << 61) - 1;
+
+    private static final long MASK30 = (1L << 30) - 1;
+    private static final long MASK31 = (1L << 31) - 1;
+
+    private final long base;
+    private final long patternHash;
+    private final long maxExponent;
+
+    /**
+     * Compiles the pattern with a base chosen uniformly at random.
+     *
+     * @param pattern    a string you're searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledModularRabinKarp(CharSequence pattern,
+                                    CharacterComparator comparator) {
+        this(pattern, comparator, ThreadLocalRandom.current().nextLong(Character.MAX_VALUE + 1, MODULUS));
+    }
+
+    /**
+     * Compiles the pattern with the given base. Prefer the random base unless
+     * the hashes have to be reproducible.
+     *
+     * @param pattern    a string you're searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @param base       the base of the hash, in the range [2, 2^61 - 1)
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     * @throws java.lang.IllegalArgumentException if base is out of range
+     */
+    public CompiledModularRabinKarp(CharSequence pattern,
+                                    CharacterComparator comparator,
+                                    long base) {
+        super(pattern, comparator);
+        if (base < 2 || base >= MODULUS) {
+            throw new IllegalArgumentException("Invalid base for modular Rabin Karp: " + base);
+        }
+        this.base = base;
+        String compiled = getPattern();
+        int[] patternClasses = getPatternClasses();
+        long hash = 0;
+        long exponent = 1;
+        for (int i = 0; i < compiled.length(); i++) {
+            hash = reduce(multiply(hash, base) + patternClasses[i] + 1);
+            if (i > 0) {
+                exponent = multiply(exponent, base);
+            }
+        }
+        patternHash = hash;
+        maxExponent = exponent;
+    }
+
+    /**
+     * Returns the base this pattern was hashed with.
+     *
+     * @return the base of the hash
+     */
+    public long getBase() {
+        return base;
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        String pattern = getPattern();
+        EquivalenceTable classes = getClasses();
+        int[] patternClasses = getPatternClasses();
+        int m = pattern.length();
+        long textHash = 0;
+        for (int i = from; i < from + m; i++) {
+            textHash = reduce(multiply(textHash, base) + classes.classOf(text.charAt(i)) + 1);
+        }
+        int start = from;
+        while (start <= to - m) {
+            if (start != from) {
+                long removed = multiply(classes.classOf(text.charAt(start - 1)) + 1, maxExponent);
+                textHash = reduce(textHash + MODULUS - removed);
+                textHash = reduce(multiply(textHash, base) + classes.classOf(text.charAt(start + m - 1)) + 1);
+            }
+            if (patternHash == textHash) {
+                boolean matches = true;
+                for (int i = start; i < (start + m); i++) {
+                    if (classes.classOf(text.charAt(i)) != patternClasses[i - start]) {
+                        matches = false;
+                        break;
+                    }
+                }
+                if (matches) {
+                    if (!sink.onMatch(start)) {
+                        return;
+                    }
+                }
+            }
+            start++;
+        }
+    }
+
+    /**
+     * Multiplies two residues modulo 2^61 - 1 without overflowing, by
+     * splitting each one into a high and a low half.
+     *
+     * @param a a value in [0, 2^61 - 1)
+     * @param b a value in [0, 2^61 - 1)
+     * @return a * b mod 2^61 - 1
+     */
+    static long multiply(long a, long b) {
+        long aHigh = a >>> 31;
+        long aLow = a & MASK31;
+        long bHigh = b >>> 31;
+        long bLow = b & MASK31;
+        long middle = aLow * bHigh + aHigh * bLow;
+        long middleHigh = middle >>> 30;
+        long middleLow = middle & MASK30;
+        return reduce(aHigh * bHigh * 2 + middleHigh + (middleLow << 31) + aLow * bLow);
+    }
+
+    /**
+     * Reduces a value modulo 2^61 - 1. The value is treated as unsigned.
+     *
+     * @param x the value to reduce
+     * @return x mod 2^61 - 1
+     */
+    static long reduce(long x) {
+        long result = (x >>> 61) + (x & MODULUS);
+        return result >= MODULUS ? result - MODULUS : result;
+    }
+}
@@ -0,0 +1,417 @@
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A pattern whose preprocessing has already been done, so it can be searched
+ * for in any number of texts without rebuilding its tables.
+ *
+ * The pattern's characters are grouped into the classes of an
+ * EquivalenceTable when it is compiled, so the algorithms compare class ids
+ * instead of calling the comparator for every pair of characters. A text
+ * character whose class is -1 matches no pattern character.
+ *
+ * Compiled patterns are immutable once constructed and may be shared between
+ * threads, as long as the comparator they were compiled with is itself safe
+ * to call from several threads at once.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public abstract class CompiledPattern {
+
+    private final String pattern;
+    private final CharacterComparator comparator;
+    private final EquivalenceTable classes;
+    private final int[] patternClasses;
+
+    /**
+     * Stores the pattern and comparator shared by every compiled pattern.
+     *
+     * @param pattern    the pattern that will be searched for
+     * @param comparator the comparator used to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    protected CompiledPattern(CharSequence pattern,
+                              CharacterComparator comparator) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to compile");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Cannot compile a pattern with a null comparator");
+        }
+        this.pattern = pattern.toString();
+        this.comparator = comparator;
+        classes = new EquivalenceTable(this.pattern, comparator);
+        patternClasses = new int[this.pattern.length()];
+        for (int i = 0; i < patternClasses.length; i++) {
+            patternClasses[i] = classes.classOf(this.pattern.charAt(i));
+        }
+    }
+
+    /**
+     * Returns the pattern this object was compiled from.
+     *
+     * @return the pattern
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the comparator this object was compiled with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the length of the compiled pattern.
+     *
+     * @return the length of the pattern
+     */
+    public int length() {
+        return pattern.length();
+    }
+
+    /**
+     * Returns the classes of equal characters in the pattern.
+     *
+     * @return the equivalence table of the pattern
+     */
+    protected EquivalenceTable getClasses() {
+        return classes;
+    }
+
+    /**
+     * Returns the class of each character of the pattern. The array is
+     * shared, so it must not be modified.
+     *
+     * @return the class of each pattern character
+     */
+    protected int[] getPatternClasses() {
+        return patternClasses;
+    }
+
+    /**
+     * Searches the whole text for the pattern.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public List<Integer> search(CharSequence text) {
+        return search(text, new IntMatchList()).asList();
+    }
+
+    /**
+     * Searches the whole text for the pattern and appends the starting index
+     * of each match to the given list.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param list the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if text or list is null
+     */
+    public IntMatchList search(CharSequence text, IntMatchList list) {
+        search(text, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Searches the whole text for the pattern and hands each match to the
+     * given sink, stopping early once the sink returns false.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param sink the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     */
+    public void search(CharSequence text, MatchSink sink) {
+        if (text == null) {
+            throw new IllegalArgumentException("Cannot search a null text");
+        }
+        search(text, 0, text.length(), sink);
+    }
+
+    /**
+     * Searches the region [from, to) of the text for the pattern. Only
+     * matches that lie entirely inside the region are reported, and their
+     * indices are relative to the start of the whole text.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if text or sink is null
+     * @throws java.lang.IllegalArgumentException if the region is not within
+     *                                            the text
+     */
+    public void search(CharSequence text, int from, int to, MatchSink sink) {
+        if (text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search with a null argument");
+        }
+        if (from < 0 || to > text.length() || from > to) {
+            throw new IllegalArgumentException("Invalid region [" + from + ", " + to
+                    + ") for text of length " + text.length());
+        }
+        if (to - from >= pattern.length()) {
+            scan(text, from, to, sink);
+        }
+    }
+
+    /**
+     * Checks whether the pattern occurs anywhere in the text. The search
+     * stops at the first match.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return true if the pattern occurs in the text
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public boolean contains(CharSequence text) {
+        return indexOf(text) >= 0;
+    }
+
+    /**
+     * Finds the first match of the pattern in the text. The search stops at
+     * that match.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return the starting index of the first match, or -1 if there is none
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public int indexOf(CharSequence text) {
+        return indexOf(text, 0);
+    }
+
+    /**
+     * Finds the first match of the pattern that starts at or after the given
+     * index. The search stops at that match.
+     *
+     * @param text      the body of text where you search for the pattern
+     * @param fromIndex the index to start searching from
+     * @return the starting index of the first such match, or -1 if there is
+     * none
+     * @throws java.lang.IllegalArgumentException if text is null
+     * @throws java.lang.IllegalArgumentException if fromIndex is negative or
+     *                                            past the end of the text
+     */
+    public int indexOf(CharSequence text, int fromIndex) {
+        if (text == null) {
+            throw new IllegalArgumentException("Cannot search a null text");
+        }
+        FirstMatch first = new FirstMatch();
+        search(text, fromIndex, text.length(), first);
+        return first.index;
+    }
+
+    /**
+     * Counts the matches of the pattern in the text, overlapping ones
+     * included, without storing them.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return the number of matches
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public int count(CharSequence text) {
+        MatchCounter counter = new MatchCounter();
+        search(text, counter);
+        return counter.count;
+    }
+
+    /**
+     * Returns an iterator that searches for each match only when it is asked
+     * for the next one.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return an iterator over the starting indices of the matches
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public MatchIterator iterator(CharSequence text) {
+        return new MatchIterator(this, text);
+    }
+
+    /**
+     * Returns a stream of the starting indices of the matches in the text,
+     * in increasing order. The stream is sequential, and calling parallel()
+     * on it splits the text with MatchSpliterator.
+     *
+     * @param text the body of text where you search for the pattern
+     * @return a stream of the match indices
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public IntStream stream(CharSequence text) {
+        return StreamSupport.intStream(new MatchSpliterator(this, text), false);
+    }
+
+    /**
+     * Runs the algorithm over the region [from, to) of the text. The
+     * arguments have already been checked, and the region is at least as
+     * long as the pattern.
+     *
+     * @param text the body of text where you search for the pattern
+     * @param from the first index of the region, inclusive
+     * @param to   the last index of the region, exclusive
+     * @param sink the callback that receives each match index
+     */
+    protected abstract void scan(CharSequence text, int from, int to,
+                                 MatchSink sink);
+
+    /**
+     * Sink that keeps the first match and stops the search.
+     */
+    static final class FirstMatch implements MatchSink {
+
+        int index = -1;
+
+        @Override
+        public boolean onMatch(int index) {
+            this.index = index;
+            return false;
+        }
+    }
+
+    /**
+     * Sink that counts the matches.
+     */
+    static final class MatchCounter implements MatchSink {
+
+        int count;
+
+        @Override
+        public boolean onMatch(int index) {
+            count++;
+            return true;
+        }
+    }
+
+    /**
+     * The matches of a pattern whose starting indices lie in a range of the
+     * text, found a block at a time for MatchIterator and MatchSpliterator.
+     *
+     * A fill runs one bounded scan that collects up to a buffer's worth of
+     * matches from the next block of starting indices, and the following
+     * fill resumes after the last match collected, or after the block if it
+     * had fewer matches. Each fill rescans at most m - 1 characters that an
+     * earlier one already read, and both the buffer and the block hold at
+     * least m indices, so walking every match costs amortised O(1) per match
+     * and per text character on top of the scan itself, however dense or
+     * overlapping the matches are.
+     */
+    static final class MatchCursor implements MatchSink {
+
+        // the fewest starting indices one fill scans, unless the range ends
+        static final int BLOCK_LENGTH = 1 << 13;
+        // the fewest matches one fill collects
+        static final int MIN_CAPACITY = 256;
+
+        private final CompiledPattern pattern;
+        private final CharSequence text;
+        private final int[] buffer;
+        private final int block;
+        private int size;
+        private int position;
+        // starting indices [next, end) have not been scanned yet
+        private int next;
+        private int end;
+
+        /**
+         * Creates a cursor over the matches that start in [next, end).
+         *
+         * @param pattern the compiled pattern
+         * @param text    the text, at least end + m - 1 characters long
+         * @param next    the first starting index
+         * @param end     one past the last starting index
+         */
+        MatchCursor(CompiledPattern pattern, CharSequence text, int next,
+                    int end) {
+            this.pattern = pattern;
+            this.text = text;
+            int m = pattern.length();
+            buffer = new int[Math.max(MIN_CAPACITY, m)];
+            block = Math.max(BLOCK_LENGTH, m);
+            this.next = next;
+            this.end = end;
+        }
+
+        /**
+         * Checks whether there is another match, scanning the next blocks
+         * if the buffer is used up.
+         *
+         * @return true if there is another match
+         */
+        boolean hasNext() {
+            while (position == size && next < end) {
+                fill();
+            }
+            return position < size;
+        }
+
+        /**
+         * Returns the next match. hasNext() must have returned true.
+         *
+         * @return the starting index of the next match
+         */
+        int next() {
+            return buffer[position++];
+        }
+
+        /**
+         * Returns the number of matches in the buffer that have not been
+         * returned yet.
+         *
+         * @return the number of buffered matches
+         */
+        int buffered() {
+            return size - position;
+        }
+
+        /**
+         * Returns the first starting index that has not been scanned yet.
+         *
+         * @return the next starting index to scan
+         */
+        int unscanned() {
+            return next;
+        }
+
+        /**
+         * Hands every remaining match to the sink: first the buffered ones,
+         * then those of a single scan over the rest of the range.
+         *
+         * @param sink the callback that receives each match index
+         */
+        void drain(MatchSink sink) {
+            while (position < size) {
+                if (!sink.onMatch(buffer[position++])) {
+                    return;
+                }
+            }
+            if (next < end) {
+                int from = next;
+                next = end;
+                pattern.search(text, from, end + pattern.length() - 1, sink);
+            }
+        }
+
+        /**
+         * Scans the next block of starting indices into the buffer.
+         */
+        private void fill() {
+            size = 0;
+            position = 0;
+            int stop = (int) Math.min(end, (long) next + block);
+            pattern.search(text, next, stop + pattern.length() - 1, this);
+            next = size == buffer.length ? buffer[size - 1] + 1 : stop;
+        }
+
+        @Override
+        public boolean onMatch(int index) {
+            buffer[size++] = index;
+            return size < buffer.length;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Rabin-Karp pattern whose hash and BASE ^ (m - 1) are computed once and
+ * reused for every search.
+ *
+ * Characters are hashed by their class in the pattern's EquivalenceTable
+ * plus one, with 0 for characters in no class, the same way
+ * CompiledByteRabinKarp hashes bytes. A window the comparator treats as
+ * equal to the pattern therefore always has the pattern's hash, and a class
+ * lookup is cheaper than mapping each character to its canonical char.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class CompiledRabinKarp extends CompiledPattern {
+
+    private final int patternHash;
+    private final int maxExponent;
+
+    /**
+     * Compiles the pattern by computing its rolling hash.
+     *
+     * @param pattern    a string you're searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public CompiledRabinKarp(CharSequence pattern,
+                             CharacterComparator comparator) {
+        super(pattern, comparator);
+        String compiled = getPattern();
+        int[] patternClasses = getPatternClasses();
+        int hash = 0;
+        int exponent = 1;
+        for (int i = compiled.length() - 1; i >= 0; i--) {
+            hash += (patternClasses[i] + 1) * exponent;
+            if (i > 0) {
+                exponent *= PatternMatching.BASE;
+            }
+        }
+        patternHash = hash;
+        maxExponent = exponent;
+    }
+
+    @Override
+    protected void scan(CharSequence text, int from, int to, MatchSink sink) {
+        String pattern = getPattern();
+        EquivalenceTable classes = getClasses();
+        int[] patternClasses = getPatternClasses();
+        int textHash = 0;
+        for (int i = from; i < from + pattern.length(); i++) {
+            textHash = textHash * PatternMatching.BASE + classes.classOf(text.charAt(i)) + 1;
+        }
+        int start = from;
+        while (start <= to - pattern.length()) {
+            if (start != from) {
+                textHash = (textHash - (classes.classOf(text.charAt(start - 1)) + 1) * maxExponent)
+                        * PatternMatching.BASE + classes.classOf(text.charAt(start + pattern.length() - 1)) + 1;
+            }
+            if (patternHash == textHash) {
+                boolean matches = true;
+                for (int i = start; i < (start + pattern.length()); i++) {
+                    if (classes.classOf(text.charAt(i)) != patternClasses[i - start]) {
+                        matches = false;
+                        break;
+                    }
+                }
+                if (matches) {
+                    if (!sink.onMatch(start)) {
+                        return;
+                    }
+                }
+            }
+            start++;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Callback that receives matches from searches over a corpus of documents,
+ * together with the document each match is in.
+ *
+ * The search stops as soon as onMatch returns false.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface DocumentMatchSink {
+
+    /**
+     * Called once for each match, in increasing order of document and then
+     * of index.
+     *
+     * @param document the index of the document in the corpus
+     * @param index    the starting index of the match in the document
+     * @return true to keep searching, false to stop the search
+     */
+    boolean onMatch(int document, int index);
+}
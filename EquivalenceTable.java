@@ -0,0 +1,259 @@
+import java.util.Arrays;
+
+/**
+ * Groups the characters of an alphabet into the classes a comparator treats
+ * as equal, and maps any other character to the class it belongs to.
+ *
+ * Each class gets a dense id from 0 to size() - 1 in order of first
+ * appearance in the alphabet, and characters that are not equal to any
+ * character of the alphabet map to -1. Each class also has a canonical
+ * character shared by all of its members, which is what hashes and lookup
+ * tables that must agree with the comparator are keyed on. Algorithms that
+ * work over these ids only have to consult the comparator once per distinct
+ * character, which also lets them index arrays by class instead of by char.
+ *
+ * The comparator must treat equality as an equivalence relation, which is
+ * what every algorithm in PatternMatching already assumes.
+ *
+ * Two comparators are recognised and never called at all: the plain
+ * CharacterComparator, where each character is its own class, and
+ * CaseInsensitiveComparator, where an ASCII letter shares its class with its
+ * other case. For both, every character that has a class is cached while the
+ * table is built, and every other character is resolved to -1 right away,
+ * so a lookup is always two array reads.
+ *
+ * For a CanonicalComparator, characters are classified by their canonical
+ * form without calling compare(). For other comparators, lookups of
+ * characters outside the alphabet are resolved with the comparator the
+ * first time they are seen and cached. The cache only ever holds values that
+ * every thread would compute the same way, so a table may be shared between
+ * threads.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class EquivalenceTable {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = (Character.MAX_VALUE + 1) >>> PAGE_BITS;
+
+    // cached entries hold class + 2, so 0 means not resolved yet and 1 means
+    // the character is in no class
+    private static final int UNKNOWN = 0;
+    private static final int NO_CLASS = 1;
+
+    // shared by every complete table for the pages of characters that are
+    // in no class, and never written to
+    private static final int[] NO_CLASS_PAGE = new int[PAGE_SIZE];
+
+    static {
+        Arrays.fill(NO_CLASS_PAGE, NO_CLASS);
+    }
+
+    private final CharacterComparator comparator;
+    private final CanonicalComparator canonicalizer;
+    private final int[][] pages;
+    private final char[] representatives;
+    private final char[] canonicals;
+    // true if every character that has a class is cached up front
+    private final boolean complete;
+
+    /**
+     * Builds the classes of the given alphabet.
+     *
+     * @param alphabet   the characters to group, usually a pattern
+     * @param comparator the comparator used to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if alphabet or comparator is
+     *                                            null
+     */
+    public EquivalenceTable(CharSequence alphabet,
+                            CharacterComparator comparator) {
+        if (alphabet == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot build an equivalence table with null argument");
+        }
+        this.comparator = comparator;
+        canonicalizer = comparator instanceof CanonicalComparator ? (CanonicalComparator) comparator : null;
+        boolean caseInsensitive = comparator instanceof CaseInsensitiveComparator;
+        complete = caseInsensitive || isIdentity(comparator);
+        pages = new int[PAGE_COUNT][];
+        pages[0] = new int[PAGE_SIZE];
+        char[] found = new char[Math.min(alphabet.length(), PAGE_SIZE)];
+        char[] keys = canonicalizer == null ? found : new char[found.length];
+        int classes = 0;
+        for (int i = 0; i < alphabet.length(); i++) {
+            char c = alphabet.charAt(i);
+            if (cached(c) != UNKNOWN) {
+                continue;
+            }
+            // a character that is not cached yet always starts a new class
+            // under the recognised comparators
+            int id = complete ? -1 : probe(c, found, keys, classes);
+            if (id < 0) {
+                if (classes == found.length) {
+                    found = Arrays.copyOf(found, found.length * 2);
+                    keys = canonicalizer == null ? found : Arrays.copyOf(keys, found.length);
+                }
+                id = classes;
+                found[classes] = c;
+                if (canonicalizer != null) {
+                    keys[classes] = canonicalizer.canonicalize(c);
+                }
+                classes++;
+            }
+            cache(c, id);
+            if (caseInsensitive) {
+                cache(CaseInsensitiveComparator.otherCase(c), id);
+            }
+        }
+        representatives = Arrays.copyOf(found, classes);
+        canonicals = canonicalizer == null ? representatives : Arrays.copyOf(keys, classes);
+        if (complete) {
+            // resolve every other character to no class now, so lookups
+            // never branch on an unknown entry
+            for (int i = 0; i < PAGE_COUNT; i++) {
+                if (pages[i] == null) {
+                    pages[i] = NO_CLASS_PAGE;
+                } else {
+                    for (int j = 0; j < PAGE_SIZE; j++) {
+                        if (pages[i][j] == UNKNOWN) {
+                            pages[i][j] = NO_CLASS;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the class of the given character.
+     *
+     * @param c the character to look up
+     * @return the id of the class c belongs to, or -1 if c is not equal to
+     * any character of the alphabet
+     */
+    public int classOf(char c) {
+        int[] page = pages[c >>> PAGE_BITS];
+        if (page != null) {
+            int entry = page[c & PAGE_MASK];
+            if (entry != UNKNOWN) {
+                return entry - 2;
+            }
+        }
+        int id = probe(c, representatives, canonicals, representatives.length);
+        cache(c, id);
+        return id;
+    }
+
+    /**
+     * Returns the number of classes in the alphabet.
+     *
+     * @return the number of classes
+     */
+    public int size() {
+        return representatives.length;
+    }
+
+    /**
+     * Returns the first character of the alphabet that belongs to a class.
+     *
+     * @param id the id of the class
+     * @return the representative character of the class
+     * @throws java.lang.IndexOutOfBoundsException if id is not a valid class
+     */
+    public char representative(int id) {
+        return representatives[id];
+    }
+
+    /**
+     * Returns the canonical character of the class of c. Every character of
+     * a class has the same canonical character: its canonical form if the
+     * comparator is a CanonicalComparator, otherwise the representative of
+     * the class. A character that is in no class is its own canonical
+     * character.
+     *
+     * @param c the character to canonicalise
+     * @return the canonical character of c
+     */
+    public char canonical(char c) {
+        int id = classOf(c);
+        return id < 0 ? c : canonicals[id];
+    }
+
+    /**
+     * Returns the comparator this table was built with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns whether the comparator is the plain CharacterComparator, which
+     * treats two characters as equal only when they are the same char.
+     * Subclasses may redefine equality, so they never count as identity.
+     *
+     * @param comparator the comparator to check
+     * @return true if the comparator compares raw char values
+     */
+    public static boolean isIdentity(CharacterComparator comparator) {
+        return comparator != null && comparator.getClass() == CharacterComparator.class;
+    }
+
+    /**
+     * Finds the class of c by comparing it to each representative, or by
+     * looking for its canonical form if the comparator has one.
+     *
+     * @param c               the character to classify
+     * @param representatives the representative of each class so far
+     * @param canonicals      the canonical character of each class so far
+     * @param classes         the number of classes so far
+     * @return the id of the class c belongs to, or -1 if none
+     */
+    private int probe(char c, char[] representatives, char[] canonicals,
+                      int classes) {
+        if (canonicalizer != null) {
+            char key = canonicalizer.canonicalize(c);
+            for (int id = 0; id < classes; id++) {
+                if (canonicals[id] == key) {
+                    return id;
+                }
+            }
+            return -1;
+        }
+        for (int id = 0; id < classes; id++) {
+            if (comparator.compare(c, representatives[id]) == 0) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the cached entry for c without resolving it.
+     *
+     * @param c the character to look up
+     * @return the cached entry, or UNKNOWN
+     */
+    private int cached(char c) {
+        int[] page = pages[c >>> PAGE_BITS];
+        return page == null ? UNKNOWN : page[c & PAGE_MASK];
+    }
+
+    /**
+     * Caches the class of c, allocating its page if needed.
+     *
+     * @param c  the character that was classified
+     * @param id the id of its class, or -1 if none
+     */
+    private void cache(char c, int id) {
+        int[] page = pages[c >>> PAGE_BITS];
+        if (page == null) {
+            page = new int[PAGE_SIZE];
+            pages[c >>> PAGE_BITS] = page;
+        }
+        page[c & PAGE_MASK] = id < 0 ? NO_CLASS : id + 2;
+    }
+}
@@ -0,0 +1,297 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed full-text index over a fixed text, built on the
+ * Burrows-Wheeler transform (BWT), that counts and locates the occurrences
+ * of a pattern without keeping the text or its full suffix array.
+ *
+ * The text is ended with a sentinel smaller than every character, and the
+ * BWT lists the character before each suffix in suffix array order. The
+ * suffixes that start with a pattern form one range of the suffix array,
+ * and backward search narrows the range one pattern character at a time,
+ * from the last to the first, with
+ *
+ * lo = C[c] + rank(c, lo), hi = C[c] + rank(c, hi)
+ *
+ * where C[c] is the number of characters smaller than c and rank(c, i)
+ * counts the c in BWT[0, i). The BWT is stored as a WaveletMatrix over the
+ * distinct characters of the text, so rank costs O(log sigma) and count()
+ * costs O(m log sigma) no matter how long the text is.
+ *
+ * locate() needs the suffix array entries of the range, and only every
+ * sampleRate-th text position is kept. An entry that was not kept is found
+ * by stepping backwards through the text with the LF mapping above until a
+ * kept position is reached, at most sampleRate - 1 steps.
+ *
+ * The BWT takes a little over one bit per character for every bit needed
+ * to number the distinct characters and the sentinel, and the samples take
+ * one bit plus 32 / sampleRate bits per character. The index is built
+ * through the full suffix array, so building still takes several ints per
+ * character. It accepts the plain CharacterComparator and any
+ * CanonicalComparator, for the same reason as SuffixArrayIndex, and is
+ * immutable once built.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class FmIndex {
+
+    /**
+     * The distance between sampled text positions unless another one is
+     * given.
+     */
+    public static final int DEFAULT_SAMPLE_RATE = 32;
+
+    private final CharacterComparator comparator;
+    private final CanonicalComparator canonicalizer;
+    private final int length;
+    private final int sampleRate;
+    // the distinct characters of the text in increasing order; the symbol of
+    // alphabet[k] is k + 1, and 0 is the sentinel
+    private final char[] alphabet;
+    // counts[s] is the number of symbols smaller than s in the text and the
+    // sentinel
+    private final int[] counts;
+    private final WaveletMatrix bwt;
+    // bit i is set if the suffix array entry at rank i was kept
+    private final RankBitVector sampled;
+    private final int[] samples;
+
+    /**
+     * Builds the index of the given text with the default sample rate.
+     *
+     * @param text       the body of text that will be searched
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     * @throws java.lang.IllegalArgumentException if comparator is neither the
+     *                                            plain CharacterComparator
+     *                                            nor a CanonicalComparator
+     */
+    public FmIndex(CharSequence text, CharacterComparator comparator) {
+        this(text, comparator, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Builds the index of the given text.
+     *
+     * @param text       the body of text that will be searched
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sampleRate the distance between the text positions whose suffix
+     *                   array entries are kept
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     * @throws java.lang.IllegalArgumentException if comparator is neither the
+     *                                            plain CharacterComparator
+     *                                            nor a CanonicalComparator
+     * @throws java.lang.IllegalArgumentException if sampleRate is not
+     *                                            positive
+     */
+    public FmIndex(CharSequence text, CharacterComparator comparator,
+                   int sampleRate) {
+        if (text == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot build an FM-index with a null argument");
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Invalid sample rate: " + sampleRate);
+        }
+        this.comparator = comparator;
+        this.sampleRate = sampleRate;
+        canonicalizer = SuffixArrayIndex.canonicalizer(comparator);
+        char[] canonical = SuffixArrayIndex.canonicalText(text, canonicalizer);
+        length = canonical.length;
+
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        for (char c : canonical) {
+            present[c] = true;
+        }
+        int[] symbolOf = new int[Character.MAX_VALUE + 1];
+        StringBuilder distinct = new StringBuilder();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (present[c]) {
+                distinct.append((char) c);
+                symbolOf[c] = distinct.length();
+            }
+        }
+        alphabet = distinct.toString().toCharArray();
+        int upper = alphabet.length;
+
+        int[] s = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            s[i] = symbolOf[canonical[i]];
+        }
+        int[] suffixArray = SuffixArrayIndex.saIs(s, upper);
+
+        counts = new int[upper + 2];
+        for (int symbol : s) {
+            counts[symbol + 1]++;
+        }
+        for (int symbol = 1; symbol < counts.length; symbol++) {
+            counts[symbol] += counts[symbol - 1];
+        }
+
+        int[] transform = new int[length + 1];
+        long[] keep = new long[(length + 64) >>> 6];
+        int kept = 0;
+        for (int i = 0; i <= length; i++) {
+            int start = suffixArray[i];
+            transform[i] = start == 0 ? s[length] : s[start - 1];
+            if (start % sampleRate == 0) {
+                keep[i >>> 6] |= 1L << i;
+                kept++;
+            }
+        }
+        bwt = new WaveletMatrix(transform, upper);
+        sampled = new RankBitVector(keep, length + 1);
+        samples = new int[kept];
+        for (int i = 0, k = 0; i <= length; i++) {
+            if (suffixArray[i] % sampleRate == 0) {
+                samples[k++] = suffixArray[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the comparator this index was built with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the distance between the sampled text positions.
+     *
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Returns the length of the indexed text.
+     *
+     * @return the number of characters in the text
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Checks whether the pattern occurs in the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return true if the pattern occurs in the text
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public boolean contains(CharSequence pattern) {
+        return count(pattern) > 0;
+    }
+
+    /**
+     * Counts the occurrences of the pattern in the text, overlapping ones
+     * included, by backward search.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the number of occurrences
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public int count(CharSequence pattern) {
+        long range = backwardSearch(pattern);
+        return (int) (range >>> 32) - (int) range;
+    }
+
+    /**
+     * Finds every occurrence of the pattern in the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return list containing the starting index of each occurrence, in
+     * increasing order
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public List<Integer> search(CharSequence pattern) {
+        IntMatchList matches = new IntMatchList();
+        locate(pattern, matches);
+        int[] sorted = matches.toArray();
+        Arrays.sort(sorted);
+        matches.clear();
+        for (int index : sorted) {
+            matches.add(index);
+        }
+        return matches.asList();
+    }
+
+    /**
+     * Hands the starting index of every occurrence of the pattern to the
+     * sink, stopping early once the sink returns false. The indices come in
+     * the order of the suffix array, not in increasing order.
+     *
+     * @param pattern the pattern you are searching for
+     * @param sink    the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if sink is null
+     */
+    public void locate(CharSequence pattern, MatchSink sink) {
+        long range = backwardSearch(pattern);
+        if (sink == null) {
+            throw new IllegalArgumentException("Cannot locate with a null sink");
+        }
+        int hi = (int) (range >>> 32);
+        for (int rank = (int) range; rank < hi; rank++) {
+            if (!sink.onMatch(suffixAt(rank))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the text position of the suffix at a rank of the suffix array,
+     * walking back to the nearest sampled position.
+     *
+     * @param rank the rank of the suffix, where rank 0 is the sentinel
+     * @return the starting index of that suffix in the text
+     */
+    private int suffixAt(int rank) {
+        int i = rank;
+        int steps = 0;
+        while (!sampled.get(i)) {
+            int symbol = bwt.get(i);
+            i = counts[symbol] + bwt.rank(symbol, i);
+            steps++;
+        }
+        return samples[sampled.rank1(i)] + steps;
+    }
+
+    /**
+     * Narrows the suffix array range from the last pattern character to the
+     * first.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the range [lo, hi) of matching suffixes, packed as
+     * hi << 32 | lo
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    private long backwardSearch(CharSequence pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to search the index for");
+        }
+        int lo = 0;
+        int hi = length + 1;
+        for (int i = pattern.length() - 1; i >= 0 && lo < hi; i--) {
+            char c = pattern.charAt(i);
+            int k = Arrays.binarySearch(alphabet, canonicalizer == null ? c : canonicalizer.canonicalize(c));
+            if (k < 0) {
+                return 0;
+            }
+            int symbol = k + 1;
+            lo = counts[symbol] + bwt.rank(symbol, lo);
+            hi = counts[symbol] + bwt.rank(symbol, hi);
+        }
+        return lo < hi ? (long) hi << 32 | lo : 0;
+    }
+}
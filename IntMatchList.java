@@ -0,0 +1,277 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of match indices backed by a primitive int array.
+ *
+ * The string searching algorithms write their matches straight into this
+ * list so that a hit costs one array slot instead of a boxed Integer and a
+ * linked list node. Callers that still need a List of Integers can use
+ * asList(), which is a live view over the same backing array.
+ *
+ * The list is also a MatchSink that accepts every match, so it can be handed
+ * to any of the callback based searches.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class IntMatchList implements MatchSink {
+
+    /**
+     * The initial capacity of the backing array.
+     */
+    public static final int INITIAL_CAPACITY = 16;
+
+    private int[] backingArray;
+    private int size;
+
+    /**
+     * Constructs an empty list with the default initial capacity.
+     */
+    public IntMatchList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list that can hold initialCapacity indices before
+     * it needs to grow.
+     *
+     * @param initialCapacity the starting length of the backing array
+     * @throws java.lang.IllegalArgumentException if initialCapacity is
+     *                                            negative
+     */
+    public IntMatchList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Cannot create a list with negative capacity");
+        }
+        backingArray = new int[initialCapacity];
+    }
+
+    /**
+     * Appends an index to the end of the list. Amortized O(1).
+     *
+     * @param index the match index to add
+     */
+    public void add(int index) {
+        if (size == backingArray.length) {
+            grow(size + 1);
+        }
+        backingArray[size++] = index;
+    }
+
+    /**
+     * Appends every index of another list to the end of this one.
+     *
+     * @param other the list whose indices are appended
+     * @throws java.lang.IllegalArgumentException if other is null
+     */
+    public void addAll(IntMatchList other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Cannot add a null list");
+        }
+        if (size + other.size > backingArray.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.backingArray, 0, backingArray, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Appends the match index and asks for the search to continue.
+     *
+     * @param index the starting index of the match in the text
+     * @return true, since a list wants every match
+     */
+    @Override
+    public boolean onMatch(int index) {
+        add(index);
+        return true;
+    }
+
+    /**
+     * Inserts an index at the given position, shifting later indices back.
+     *
+     * @param position where the index should be inserted
+     * @param index    the match index to add
+     * @throws java.lang.IndexOutOfBoundsException if position is negative or
+     *                                             greater than size
+     */
+    public void add(int position, int index) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size);
+        }
+        if (size == backingArray.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(backingArray, position, backingArray, position + 1, size - position);
+        backingArray[position] = index;
+        size++;
+    }
+
+    /**
+     * Returns the index stored at the given position.
+     *
+     * @param position the position to look up
+     * @return the match index at that position
+     * @throws java.lang.IndexOutOfBoundsException if position is negative or
+     *                                             not less than size
+     */
+    public int get(int position) {
+        checkPosition(position);
+        return backingArray[position];
+    }
+
+    /**
+     * Replaces the index stored at the given position.
+     *
+     * @param position the position to overwrite
+     * @param index    the new match index
+     * @return the index previously stored at that position
+     * @throws java.lang.IndexOutOfBoundsException if position is negative or
+     *                                             not less than size
+     */
+    public int set(int position, int index) {
+        checkPosition(position);
+        int old = backingArray[position];
+        backingArray[position] = index;
+        return old;
+    }
+
+    /**
+     * Removes the index stored at the given position, shifting later indices
+     * forward.
+     *
+     * @param position the position to remove
+     * @return the removed match index
+     * @throws java.lang.IndexOutOfBoundsException if position is negative or
+     *                                             not less than size
+     */
+    public int removeAt(int position) {
+        checkPosition(position);
+        int old = backingArray[position];
+        System.arraycopy(backingArray, position + 1, backingArray, position, size - position - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * Removes every index from the list but keeps the backing array so it
+     * can be reused for another search.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the number of indices in the list.
+     *
+     * @return the size of the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the list holds no indices.
+     *
+     * @return true if the list is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a copy of the indices in the list.
+     *
+     * @return a new array of length size holding the indices in order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(backingArray, size);
+    }
+
+    /**
+     * Returns a List view of this list. Reads and writes through the view go
+     * straight to the backing array, so no copy is made.
+     *
+     * @return a random access List of Integers backed by this list
+     */
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    @Override
+    public String toString() {
+        return asList().toString();
+    }
+
+    /**
+     * Makes sure the backing array can hold at least minCapacity indices.
+     *
+     * @param minCapacity the number of indices that must fit
+     */
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(backingArray.length * 2, Math.max(minCapacity, INITIAL_CAPACITY));
+        backingArray = Arrays.copyOf(backingArray, newCapacity);
+    }
+
+    /**
+     * Checks that position refers to an index currently in the list.
+     *
+     * @param position the position to check
+     * @throws java.lang.IndexOutOfBoundsException if position is negative or
+     *                                             not less than size
+     */
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * List of Integers view over the backing array.
+     */
+    private class ListView extends AbstractList<Integer> implements RandomAccess {
+
+        @Override
+        public Integer get(int position) {
+            return IntMatchList.this.get(position);
+        }
+
+        @Override
+        public Integer set(int position, Integer index) {
+            if (index == null) {
+                throw new IllegalArgumentException("Cannot add null to a match list");
+            }
+            return IntMatchList.this.set(position, index);
+        }
+
+        @Override
+        public void add(int position, Integer index) {
+            if (index == null) {
+                throw new IllegalArgumentException("Cannot add null to a match list");
+            }
+            IntMatchList.this.add(position, index);
+            modCount++;
+        }
+
+        @Override
+        public Integer remove(int position) {
+            int old = removeAt(position);
+            modCount++;
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            IntMatchList.this.clear();
+            modCount++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Last occurrence table for the Boyer Moore algorithm stored in primitive int
+ * arrays instead of a HashMap of boxed Characters.
+ *
+ * The table is split into pages of 256 characters each. The first page
+ * covers Latin-1 and is always allocated, so lookups for the common
+ * characters are a plain array read. The other pages are only allocated
+ * when the pattern contains a character from them.
+ *
+ * Characters that are not in the pattern map to -1.
+ *
+ * A table built with an EquivalenceTable is keyed on canonical characters
+ * instead of raw ones, so every character a comparator treats as equal to a
+ * pattern character shares its entry, and look ups must go through
+ * EquivalenceTable.canonical(). Such a table also holds the last index of
+ * each class, which the Boyer Moore engines read with the class id they
+ * already computed for the comparison.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class LastOccurrenceTable {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = (Character.MAX_VALUE + 1) >>> PAGE_BITS;
+
+    private final int[][] pages;
+    private final int size;
+    // lastByClass[id + 1] is the last index of class id, and
+    // lastByClass[0] is -1 for characters in no class
+    private final int[] lastByClass;
+
+    /**
+     * Builds the last occurrence table for the given pattern.
+     *
+     * Ex. pattern = octocat
+     *
+     * table.get(o) = 3
+     * table.get(c) = 4
+     * table.get(t) = 6
+     * table.get(a) = 5
+     * table.get(everything else) = -1
+     *
+     * @param pattern a pattern you are building last table for
+     * @throws java.lang.IllegalArgumentException if the pattern is null
+     */
+    public LastOccurrenceTable(CharSequence pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Cannot build last table with null pattern");
+        }
+        pages = new int[PAGE_COUNT][];
+        size = fill(pattern, null);
+        lastByClass = null;
+    }
+
+    /**
+     * Builds the last occurrence table for the given pattern, keyed on the
+     * canonical characters of the given classes.
+     *
+     * Ex. pattern = Octocat, case insensitive comparator
+     *
+     * table.get(o) = 3
+     * table.get(c) = 4
+     * table.get(t) = 6
+     * table.get(a) = 5
+     * table.get(everything else) = -1
+     *
+     * @param pattern a pattern you are building last table for
+     * @param classes the classes of the pattern's characters
+     * @throws java.lang.IllegalArgumentException if pattern or classes is
+     *                                            null
+     */
+    public LastOccurrenceTable(CharSequence pattern, EquivalenceTable classes) {
+        if (pattern == null || classes == null) {
+            throw new IllegalArgumentException("Cannot build last table with null argument");
+        }
+        pages = new int[PAGE_COUNT][];
+        size = fill(pattern, classes);
+        lastByClass = new int[classes.size() + 1];
+        Arrays.fill(lastByClass, -1);
+        for (int i = 0; i < pattern.length(); i++) {
+            lastByClass[classes.classOf(pattern.charAt(i)) + 1] = i;
+        }
+    }
+
+    /**
+     * Returns the last index of the character in the pattern.
+     *
+     * @param c the character to look up
+     * @return the last index of c in the pattern, or -1 if c is not in it
+     */
+    public int get(char c) {
+        int[] page = pages[c >>> PAGE_BITS];
+        return page == null ? -1 : page[c & PAGE_MASK];
+    }
+
+    /**
+     * Returns the last index in the pattern of any character of a class.
+     *
+     * @param id the id of the class, or -1 for characters in no class
+     * @return the last index of the class in the pattern, or -1 if id is -1
+     * @throws java.lang.IllegalStateException if the table was not built
+     *                                         with an EquivalenceTable
+     */
+    public int getByClass(int id) {
+        if (lastByClass == null) {
+            throw new IllegalStateException("Last table was built without classes");
+        }
+        return lastByClass[id + 1];
+    }
+
+    /**
+     * Returns the number of distinct characters in the pattern.
+     *
+     * @return the number of entries in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a read-only Map view of the table. Characters that are not in
+     * the pattern are not keys of the map.
+     *
+     * @return a Map from each character in the pattern to its last index
+     */
+    public Map<Character, Integer> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * Records the last index of each character of the pattern in the pages.
+     *
+     * @param pattern the pattern to index
+     * @param classes the classes whose canonical characters are the keys, or
+     *                null to key on raw characters
+     * @return the number of distinct keys
+     */
+    private int fill(CharSequence pattern, EquivalenceTable classes) {
+        pages[0] = newPage();
+        int entries = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = classes == null ? pattern.charAt(i) : classes.canonical(pattern.charAt(i));
+            int[] page = pages[c >>> PAGE_BITS];
+            if (page == null) {
+                page = newPage();
+                pages[c >>> PAGE_BITS] = page;
+            }
+            if (page[c & PAGE_MASK] == -1) {
+                entries++;
+            }
+            page[c & PAGE_MASK] = i;
+        }
+        return entries;
+    }
+
+    /**
+     * Creates a page with every entry set to -1.
+     *
+     * @return the new page
+     */
+    private static int[] newPage() {
+        int[] page = new int[PAGE_SIZE];
+        Arrays.fill(page, -1);
+        return page;
+    }
+
+    /**
+     * Read-only Map view over the pages.
+     */
+    private class MapView extends AbstractMap<Character, Integer> {
+
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof Character)) {
+                return null;
+            }
+            int last = LastOccurrenceTable.this.get((Character) key);
+            return last == -1 ? null : last;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<Character, Integer>> entrySet() {
+            return new AbstractSet<Entry<Character, Integer>>() {
+                @Override
+                public Iterator<Entry<Character, Integer>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over the characters that are in the pattern, in increasing
+     * order of character value.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<Character, Integer>> {
+
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next <= Character.MAX_VALUE;
+        }
+
+        @Override
+        public Map.Entry<Character, Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more entries in the last table");
+            }
+            char c = (char) next;
+            next = advance(next + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(c, get(c));
+        }
+
+        /**
+         * Finds the first character at or after from that is in the pattern.
+         *
+         * @param from the character value to start looking at
+         * @return that character's value, or Character.MAX_VALUE + 1 if none
+         */
+        private int advance(int from) {
+            int c = from;
+            while (c <= Character.MAX_VALUE) {
+                int[] page = pages[c >>> PAGE_BITS];
+                if (page == null) {
+                    c = (c | PAGE_MASK) + 1;
+                } else if (page[c & PAGE_MASK] == -1) {
+                    c++;
+                } else {
+                    return c;
+                }
+            }
+            return c;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Callback that receives match indices that may not fit in an int, from
+ * searches over streams and files larger than 2 GB.
+ *
+ * The search stops as soon as onMatch returns false.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface LongMatchSink {
+
+    /**
+     * Called once for each match, in increasing order of index.
+     *
+     * @param index the starting index of the match from the start of the
+     *              input
+     * @return true to keep searching, false to stop the search
+     */
+    boolean onMatch(long index);
+}
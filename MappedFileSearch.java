@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Searches files for a byte pattern by memory mapping them, so the file's
+ * bytes are read straight from the page cache and never copied into the
+ * Java heap.
+ *
+ * A single mapping cannot be larger than 2 GB, so the file is mapped in
+ * windows. Consecutive windows overlap by m - 1 bytes, so a match that
+ * crosses the end of one window lies entirely inside the next one, and
+ * since a window only reports matches that lie entirely inside it, no
+ * match is reported twice. Match indices are offsets from the start of the
+ * file and are reported as longs.
+ *
+ * The mappings are released when they are garbage collected.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class MappedFileSearch {
+
+    /**
+     * The size of each mapped window unless another one is given, 1 GB.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Searches the file for the pattern with the Knuth-Morris-Pratt (KMP)
+     * algorithm.
+     *
+     * @param file       the file to search
+     * @param pattern    the bytes you are searching for
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match offset
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.io.IOException if the file cannot be read
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if file, comparator or sink
+     *                                            is null
+     */
+    public static boolean kmp(Path file, byte[] pattern,
+                              CharacterComparator comparator,
+                              LongMatchSink sink) throws IOException {
+        return search(file, new CompiledByteKmp(pattern, comparator), sink);
+    }
+
+    /**
+     * Searches the file for the pattern with the Boyer Moore algorithm.
+     *
+     * @param file       the file to search
+     * @param pattern    the bytes you are searching for
+     * @param comparator you MUST use this to check if bytes are equal
+     * @param sink       the callback that receives each match offset
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.io.IOException if the file cannot be read
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if file, comparator or sink
+     *                                            is null
+     */
+    public static boolean boyerMoore(Path file, byte[] pattern,
+                                     CharacterComparator comparator,
+                                     LongMatchSink sink) throws IOException {
+        return search(file, new CompiledByteBoyerMoore(pattern, comparator), sink);
+    }
+
+    /**
+     * Searches the file for a compiled pattern, mapping it in windows of
+     * the default size.
+     *
+     * @param file    the file to search
+     * @param pattern the compiled pattern you are searching for
+     * @param sink    the callback that receives each match offset
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.io.IOException if the file cannot be read
+     * @throws java.lang.IllegalArgumentException if any argument is null
+     */
+    public static boolean search(Path file, CompiledBytePattern pattern,
+                                 LongMatchSink sink) throws IOException {
+        return search(file, pattern, sink, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Searches the file for a compiled pattern, mapping it in windows of the
+     * given size.
+     *
+     * @param file       the file to search
+     * @param pattern    the compiled pattern you are searching for
+     * @param sink       the callback that receives each match offset
+     * @param windowSize the number of bytes to map at once
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.io.IOException if the file cannot be read
+     * @throws java.lang.IllegalArgumentException if any argument is null
+     * @throws java.lang.IllegalArgumentException if windowSize is not longer
+     *                                            than the pattern
+     */
+    public static boolean search(Path file, CompiledBytePattern pattern,
+                                 LongMatchSink sink, int windowSize)
+        throws IOException {
+        if (file == null || pattern == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search a file with a null argument");
+        }
+        int m = pattern.length();
+        if (windowSize <= m) {
+            throw new IllegalArgumentException("Window size " + windowSize
+                    + " must be longer than the pattern");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long step = windowSize - (m - 1);
+            WindowSink window = new WindowSink(sink);
+            for (long start = 0; size - start >= m; start += step) {
+                int length = (int) Math.min(windowSize, size - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                window.base = start;
+                pattern.search(buffer, 0, length, window);
+                if (window.stopped) {
+                    return false;
+                }
+                if (start + length == size) {
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Turns the int indices of a window into long offsets in the file.
+     */
+    private static final class WindowSink implements MatchSink {
+
+        private final LongMatchSink target;
+        private long base;
+        private boolean stopped;
+
+        /**
+         * Creates a sink that forwards to the given one.
+         *
+         * @param target the sink that receives the file offsets
+         */
+        private WindowSink(LongMatchSink target) {
+            this.target = target;
+        }
+
+        @Override
+        public boolean onMatch(int index) {
+            stopped = !target.onMatch(base + index);
+            return !stopped;
+        }
+    }
+}
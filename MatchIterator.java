@@ -0,0 +1,52 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Iterator over the matches of a compiled pattern in a text that only
+ * searches for the next match when it is asked for one.
+ *
+ * The matches are found a block at a time: one bounded scan collects the
+ * matches that start in the next block of the text, up to a buffer's worth,
+ * and the iterator hands them out before it scans the next block from where
+ * that scan stopped. The search is never restarted for each match, so every
+ * step costs amortised O(1) however dense the matches are, while a consumer
+ * that stops early leaves the text past the current block unscanned.
+ * Matches are returned in increasing order, overlapping ones included.
+ *
+ * The text must not change while it is being iterated over.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class MatchIterator implements PrimitiveIterator.OfInt {
+
+    private final CompiledPattern.MatchCursor cursor;
+
+    /**
+     * Creates an iterator over the matches of the pattern in the text.
+     *
+     * @param pattern the compiled pattern you are searching for
+     * @param text    the body of text where you search for the pattern
+     * @throws java.lang.IllegalArgumentException if pattern or text is null
+     */
+    public MatchIterator(CompiledPattern pattern, CharSequence text) {
+        if (pattern == null || text == null) {
+            throw new IllegalArgumentException("Cannot iterate over matches with a null argument");
+        }
+        cursor = new CompiledPattern.MatchCursor(pattern, text, 0,
+                Math.max(0, text.length() - pattern.length() + 1));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor.hasNext();
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more matches in the text");
+        }
+        return cursor.next();
+    }
+}
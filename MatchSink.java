@@ -0,0 +1,21 @@
+/**
+ * Callback that receives match indices from the string searching algorithms
+ * as they are found, so no list has to be built at all.
+ *
+ * The algorithms stop scanning as soon as onMatch returns false, which lets
+ * callers abort once they have all the matches they need.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface MatchSink {
+
+    /**
+     * Called once for each match, in increasing order of index.
+     *
+     * @param index the starting index of the match in the text
+     * @return true to keep searching, false to stop the search
+     */
+    boolean onMatch(int index);
+}
@@ -0,0 +1,171 @@
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Spliterator over the matches of a compiled pattern in a text, so that
+ * IntStream pipelines can search a single large text in parallel.
+ *
+ * Like ParallelSearch, a spliterator owns the match starting indices in
+ * [lo, hi) and searches [lo, hi + m - 1), so it overlaps the next one by
+ * m - 1 characters and every match is reported by exactly one spliterator.
+ * Splitting hands off the first half of the starting indices, which keeps
+ * the encounter order, and stops once a half would own fewer than the
+ * minimum split size.
+ *
+ * tryAdvance() finds the matches a block at a time, like MatchIterator, so
+ * each call costs amortised O(1) and the text past the current block is not
+ * scanned until it is needed, while forEachRemaining() runs a single scan
+ * over everything that is left. A spliterator that still holds matches from
+ * a block it scanned is not split.
+ *
+ * The text must not change while it is being searched, and the comparator
+ * of the compiled pattern must be safe to share between threads.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class MatchSpliterator implements Spliterator.OfInt {
+
+    private static final int CHARACTERISTICS = ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+
+    private final CompiledPattern pattern;
+    private final CharSequence text;
+    private final int minSplitSize;
+    // starting indices [next, end) have not been handed to the cursor yet
+    private int next;
+    private final int end;
+    // the matches found so far, once tryAdvance() has been called
+    private CompiledPattern.MatchCursor cursor;
+
+    /**
+     * Creates a spliterator over every match of the pattern in the text,
+     * with ParallelSearch's default minimum chunk size as the minimum split
+     * size.
+     *
+     * @param pattern the compiled pattern you are searching for
+     * @param text    the body of text where you search for the pattern
+     * @throws java.lang.IllegalArgumentException if pattern or text is null
+     */
+    public MatchSpliterator(CompiledPattern pattern, CharSequence text) {
+        this(pattern, text, ParallelSearch.DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a spliterator over every match of the pattern in the text.
+     *
+     * @param pattern      the compiled pattern you are searching for
+     * @param text         the body of text where you search for the pattern
+     * @param minSplitSize the fewest starting indices a split may own
+     * @throws java.lang.IllegalArgumentException if pattern or text is null
+     * @throws java.lang.IllegalArgumentException if minSplitSize is not
+     *                                            positive
+     */
+    public MatchSpliterator(CompiledPattern pattern, CharSequence text,
+                            int minSplitSize) {
+        if (pattern == null || text == null) {
+            throw new IllegalArgumentException("Cannot split matches with a null argument");
+        }
+        if (minSplitSize <= 0) {
+            throw new IllegalArgumentException("Invalid minimum split size: " + minSplitSize);
+        }
+        this.pattern = pattern;
+        this.text = text;
+        this.minSplitSize = minSplitSize;
+        next = 0;
+        end = Math.max(0, text.length() - pattern.length() + 1);
+    }
+
+    /**
+     * Creates the spliterator for one half of a split.
+     *
+     * @param parent the spliterator that was split
+     * @param next   the first starting index the new spliterator owns
+     * @param end    one past the last starting index it owns
+     */
+    private MatchSpliterator(MatchSpliterator parent, int next, int end) {
+        pattern = parent.pattern;
+        text = parent.text;
+        minSplitSize = parent.minSplitSize;
+        this.next = next;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (action == null) {
+            throw new NullPointerException("Cannot advance with a null action");
+        }
+        if (!cursor().hasNext()) {
+            return false;
+        }
+        action.accept(cursor.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final IntConsumer action) {
+        if (action == null) {
+            throw new NullPointerException("Cannot advance with a null action");
+        }
+        cursor().drain(new MatchSink() {
+            @Override
+            public boolean onMatch(int index) {
+                action.accept(index);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+        if (cursor != null) {
+            if (cursor.buffered() > 0) {
+                return null;
+            }
+            next = cursor.unscanned();
+            cursor = null;
+        }
+        int remaining = end - next;
+        if (remaining < 2 * minSplitSize) {
+            return null;
+        }
+        int middle = next + remaining / 2;
+        MatchSpliterator prefix = new MatchSpliterator(this, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (cursor != null) {
+            return cursor.buffered() + end - cursor.unscanned();
+        }
+        return end - next;
+    }
+
+    /**
+     * Returns the cursor over the starting indices that are left, creating
+     * it on first use.
+     *
+     * @return the cursor
+     */
+    private CompiledPattern.MatchCursor cursor() {
+        if (cursor == null) {
+            cursor = new CompiledPattern.MatchCursor(pattern, text, next, end);
+            next = end;
+        }
+        return cursor;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        // the matches are sorted in their natural order
+        return null;
+    }
+}
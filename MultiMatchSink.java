@@ -0,0 +1,21 @@
+/**
+ * Callback that receives matches from searches that look for several
+ * patterns at once, together with which pattern matched.
+ *
+ * The search stops as soon as onMatch returns false.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface MultiMatchSink {
+
+    /**
+     * Called once for each match.
+     *
+     * @param patternId the id of the pattern that matched
+     * @param index     the starting index of the match in the text
+     * @return true to keep searching, false to stop the search
+     */
+    boolean onMatch(int patternId, int index);
+}
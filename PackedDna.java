@@ -0,0 +1,315 @@
+import java.util.Arrays;
+
+/**
+ * Nucleotide sequence packed two bits per base, 32 bases to a long, which
+ * takes an eighth of the memory of the same sequence in a String.
+ *
+ * A, C, G and T are stored as 0, 1, 2 and 3, in either case, so the
+ * complement of a base is its code xor 3. Base i sits in bits 2 * (i % 32)
+ * and 2 * (i % 32) + 1 of word i / 32. N and the other IUPAC ambiguity codes
+ * (R, Y, S, W, K, M, B, D, H and V) cannot be packed into two bits; they are
+ * rare and come in runs, so the runs are kept as sorted intervals next to
+ * the packed bases, whose bits inside a run are 0. An ambiguous position
+ * reads back as N, and CompiledDnaPattern never matches across one, just as
+ * an N in a String matches no pattern character.
+ *
+ * The sequence is a CharSequence, so any CompiledPattern can search it, but
+ * CompiledDnaPattern compares 32 bases at a time on the packed words
+ * directly. Instances are immutable.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class PackedDna implements CharSequence {
+
+    private static final String BASES = "ACGT";
+    private static final String AMBIGUOUS = "NRYSWKMBDHV";
+    private static final int BASES_PER_WORD = Long.SIZE / 2;
+
+    private final int length;
+    // one spare word at the end, so that bases() can always read two words
+    private final long[] words;
+    // the ambiguous runs are [runStarts[r], runEnds[r]), sorted and disjoint
+    private final int[] runStarts;
+    private final int[] runEnds;
+
+    /**
+     * Packs the given sequence.
+     *
+     * @param sequence the bases, each one of ACGT or an IUPAC ambiguity code
+     *                 in either case
+     * @throws java.lang.IllegalArgumentException if sequence is null
+     * @throws java.lang.IllegalArgumentException if sequence holds a
+     *                                            character that is not a
+     *                                            nucleotide code
+     */
+    public PackedDna(CharSequence sequence) {
+        if (sequence == null) {
+            throw new IllegalArgumentException("Cannot pack a null sequence");
+        }
+        length = sequence.length();
+        words = new long[length / BASES_PER_WORD + 2];
+        IntMatchList starts = new IntMatchList();
+        IntMatchList ends = new IntMatchList();
+        int runStart = -1;
+        for (int i = 0; i < length; i++) {
+            char c = sequence.charAt(i);
+            int code = code(c);
+            if (code >= 0) {
+                words[i / BASES_PER_WORD] |= (long) code << (2 * i);
+                if (runStart >= 0) {
+                    starts.add(runStart);
+                    ends.add(i);
+                    runStart = -1;
+                }
+            } else if (AMBIGUOUS.indexOf(Character.toUpperCase(c)) >= 0) {
+                if (runStart < 0) {
+                    runStart = i;
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid base '" + c + "' at index " + i + " of DNA sequence");
+            }
+        }
+        if (runStart >= 0) {
+            starts.add(runStart);
+            ends.add(length);
+        }
+        runStarts = starts.toArray();
+        runEnds = ends.toArray();
+    }
+
+    /**
+     * Wraps already packed bases.
+     *
+     * @param length    the number of bases
+     * @param words     the packed bases, with one spare word
+     * @param runStarts the first index of each ambiguous run
+     * @param runEnds   the index after each ambiguous run
+     */
+    private PackedDna(int length, long[] words, int[] runStarts,
+                      int[] runEnds) {
+        this.length = length;
+        this.words = words;
+        this.runStarts = runStarts;
+        this.runEnds = runEnds;
+    }
+
+    /**
+     * Returns the two bit code of a base.
+     *
+     * @param c the base
+     * @return 0, 1, 2 or 3 for A, C, G or T in either case, or -1 for any
+     * other character
+     */
+    static int code(char c) {
+        switch (c) {
+            case 'A':
+            case 'a':
+                return 0;
+            case 'C':
+            case 'c':
+                return 1;
+            case 'G':
+            case 'g':
+                return 2;
+            case 'T':
+            case 't':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the base at the given index, in upper case, or N if the
+     * position is ambiguous.
+     *
+     * @param index the index of the base
+     * @return the base
+     * @throws java.lang.IndexOutOfBoundsException if index is not in
+     *                                             [0, length)
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for length " + length);
+        }
+        if (isAmbiguous(index)) {
+            return 'N';
+        }
+        return BASES.charAt((int) (words[index / BASES_PER_WORD] >>> (2 * index)) & 3);
+    }
+
+    /**
+     * Checks whether the base at the given index is an ambiguity code.
+     *
+     * @param index the index of the base
+     * @return true if the base was not one of ACGT
+     * @throws java.lang.IndexOutOfBoundsException if index is not in
+     *                                             [0, length)
+     */
+    public boolean isAmbiguous(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for length " + length);
+        }
+        int run = nextRun(index);
+        return run < runStarts.length && runStarts[run] <= index;
+    }
+
+    /**
+     * Returns the number of runs of ambiguous bases.
+     *
+     * @return the number of runs
+     */
+    public int ambiguousRunCount() {
+        return runStarts.length;
+    }
+
+    /**
+     * Returns the reverse complement of the sequence, the other strand read
+     * in its own 5' to 3' direction. Ambiguous runs stay ambiguous.
+     *
+     * @return the reverse complement
+     */
+    public PackedDna reverseComplement() {
+        long[] reversed = new long[words.length];
+        for (int i = 0; i < length; i++) {
+            long code = (words[i / BASES_PER_WORD] >>> (2 * i)) & 3;
+            int j = length - 1 - i;
+            reversed[j / BASES_PER_WORD] |= (code ^ 3) << (2 * j);
+        }
+        int runs = runStarts.length;
+        int[] starts = new int[runs];
+        int[] ends = new int[runs];
+        for (int r = 0; r < runs; r++) {
+            starts[runs - 1 - r] = length - runEnds[r];
+            ends[runs - 1 - r] = length - runStarts[r];
+        }
+        for (int r = 0; r < runs; r++) {
+            for (int i = starts[r]; i < ends[r]; i++) {
+                reversed[i / BASES_PER_WORD] &= ~(3L << (2 * i));
+            }
+        }
+        return new PackedDna(length, reversed, starts, ends);
+    }
+
+    /**
+     * Returns the bases in the given range as a new packed sequence.
+     *
+     * @param start the first index, inclusive
+     * @param end   the last index, exclusive
+     * @return the packed subsequence
+     * @throws java.lang.IndexOutOfBoundsException if the range is not within
+     *                                             the sequence
+     */
+    @Override
+    public PackedDna subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end
+                    + ") for length " + length);
+        }
+        int size = end - start;
+        long[] copy = new long[size / BASES_PER_WORD + 2];
+        for (int w = 0; w * BASES_PER_WORD < size; w++) {
+            copy[w] = bases(start + w * BASES_PER_WORD);
+        }
+        int bits = 2 * (size % BASES_PER_WORD);
+        if (bits != 0) {
+            copy[size / BASES_PER_WORD] &= (1L << bits) - 1;
+        }
+        int first = nextRun(start);
+        int last = first;
+        while (last < runStarts.length && runStarts[last] < end) {
+            last++;
+        }
+        int[] starts = new int[last - first];
+        int[] ends = new int[last - first];
+        for (int r = first; r < last; r++) {
+            starts[r - first] = Math.max(runStarts[r], start) - start;
+            ends[r - first] = Math.min(runEnds[r], end) - start;
+        }
+        return new PackedDna(size, copy, starts, ends);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = BASES.charAt((int) (words[i / BASES_PER_WORD] >>> (2 * i)) & 3);
+        }
+        for (int r = 0; r < runStarts.length; r++) {
+            Arrays.fill(chars, runStarts[r], runEnds[r], 'N');
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the 32 bases that start at the given index, packed like a
+     * word of the sequence, with base index in the lowest two bits. Bases
+     * past the end of the sequence read as 0.
+     *
+     * @param index the index of the first base, in [0, length]
+     * @return the packed bases
+     */
+    long bases(int index) {
+        int word = index / BASES_PER_WORD;
+        int shift = 2 * (index % BASES_PER_WORD);
+        // two shifts, because a long shifted by 64 is left as it is
+        return words[word] >>> shift | (words[word + 1] << 1) << (63 - shift);
+    }
+
+    /**
+     * Returns the packed bases, followed by one spare word of zeros. The
+     * array is shared, so it must not be modified.
+     *
+     * @return the packed words
+     */
+    long[] words() {
+        return words;
+    }
+
+    /**
+     * Finds the first ambiguous run that ends after the given index.
+     *
+     * @param index an index of the sequence
+     * @return the number of the run, or ambiguousRunCount() if there is none
+     */
+    int nextRun(int index) {
+        int low = 0;
+        int high = runEnds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (runEnds[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first index of an ambiguous run.
+     *
+     * @param run the number of the run
+     * @return the index the run starts at
+     */
+    int runStart(int run) {
+        return runStarts[run];
+    }
+
+    /**
+     * Returns the index after an ambiguous run.
+     *
+     * @param run the number of the run
+     * @return the index the run ends at, exclusive
+     */
+    int runEnd(int run) {
+        return runEnds[run];
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches one large text on several cores by splitting it into chunks and
+ * searching the chunks in a ForkJoinPool.
+ *
+ * Each chunk owns the match starting indices in [lo, hi) and is searched
+ * over [lo, hi + m - 1), so it overlaps the next chunk by m - 1 characters.
+ * A match that crosses a chunk boundary is therefore found by the chunk it
+ * starts in, and only by that chunk, so there are no duplicate hits to
+ * remove. The chunks' matches are concatenated in chunk order, which keeps
+ * the result sorted.
+ *
+ * Texts shorter than two chunks are searched on the calling thread, since
+ * splitting them would cost more than it saves.
+ *
+ * The comparator of the compiled pattern is called from several threads at
+ * once, so it must be safe to share.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class ParallelSearch {
+
+    /**
+     * The smallest chunk handed to a single task unless another size is
+     * given.
+     */
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 1 << 16;
+
+    private final CompiledPattern pattern;
+    private final int minChunkSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a parallel search for the compiled pattern that runs in the
+     * common pool with the default minimum chunk size.
+     *
+     * @param pattern the compiled pattern you are searching for
+     * @throws java.lang.IllegalArgumentException if pattern is null
+     */
+    public ParallelSearch(CompiledPattern pattern) {
+        this(pattern, DEFAULT_MIN_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a parallel search for the compiled pattern that runs in the
+     * given pool.
+     *
+     * @param pattern      the compiled pattern you are searching for
+     * @param minChunkSize the smallest number of starting indices a single
+     *                     task searches
+     * @param pool         the pool the tasks run in
+     * @throws java.lang.IllegalArgumentException if pattern or pool is null
+     * @throws java.lang.IllegalArgumentException if minChunkSize is not
+     *                                            positive
+     */
+    public ParallelSearch(CompiledPattern pattern, int minChunkSize,
+                          ForkJoinPool pool) {
+        if (pattern == null || pool == null) {
+            throw new IllegalArgumentException("Cannot search in parallel with a null argument");
+        }
+        if (minChunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid minimum chunk size: " + minChunkSize);
+        }
+        this.pattern = pattern;
+        this.minChunkSize = minChunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Searches the text for the pattern.
+     *
+     * @param text the body of text where you search for the pattern; it must
+     *             not change while the search runs
+     * @return list containing the starting index for each match found, in
+     * increasing order
+     * @throws java.lang.IllegalArgumentException if text is null
+     */
+    public IntMatchList search(CharSequence text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Cannot search a null text");
+        }
+        int starts = text.length() - pattern.length() + 1;
+        if (starts <= 0) {
+            return new IntMatchList(0);
+        }
+        if (starts < 2 * minChunkSize) {
+            return pattern.search(text, new IntMatchList());
+        }
+        return pool.invoke(new ChunkTask(text, 0, starts));
+    }
+
+    /**
+     * Searches the starting indices [lo, hi), splitting in half until the
+     * range is no longer than the minimum chunk size.
+     */
+    private final class ChunkTask extends RecursiveTask<IntMatchList> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * Creates a task for the starting indices [lo, hi).
+         *
+         * @param text the text being searched
+         * @param lo   the first starting index, inclusive
+         * @param hi   the last starting index, exclusive
+         */
+        private ChunkTask(CharSequence text, int lo, int hi) {
+            this.text = text;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected IntMatchList compute() {
+            if (hi - lo <= minChunkSize) {
+                IntMatchList matches = new IntMatchList();
+                pattern.search(text, lo, hi + pattern.length() - 1, matches);
+                return matches;
+            }
+            int mid = (lo + hi) >>> 1;
+            ChunkTask left = new ChunkTask(text, lo, mid);
+            left.fork();
+            IntMatchList right = new ChunkTask(text, mid, hi).compute();
+            IntMatchList matches = left.join();
+            matches.addAll(right);
+            return matches;
+        }
+    }
+}
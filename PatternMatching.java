@@ -1,5 +1,3 @@
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -28,39 +26,58 @@ public class PatternMatching {
      */
     public static List<Integer> kmp(CharSequence pattern, CharSequence text,
                                     CharacterComparator comparator) {
+        return kmp(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Runs the Knuth-Morris-Pratt (KMP) algorithm and appends the starting
+     * index of each match to the given primitive list instead of building a
+     * list of boxed Integers.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList kmp(CharSequence pattern, CharSequence text,
+                                   CharacterComparator comparator,
+                                   IntMatchList list) {
+        kmp(pattern, text, comparator, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Runs the Knuth-Morris-Pratt (KMP) algorithm and hands the starting
+     * index of each match to the given sink as soon as it is found. Nothing
+     * is allocated per match, and the search stops early once the sink
+     * returns false.
+     *
+     * To search many texts for the same pattern, compile it once with
+     * CompiledKmp instead.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void kmp(CharSequence pattern, CharSequence text,
+                           CharacterComparator comparator, MatchSink sink) {
         if (pattern == null || pattern.length() == 0) {
             throw new IllegalArgumentException("Invalid pattern to perform kmp with");
         }
-        if (comparator == null || text == null) {
+        if (comparator == null || text == null || sink == null) {
             throw new IllegalArgumentException("Cannot perform kmp with a null argument");
         }
-        LinkedList<Integer> list = new LinkedList<Integer>();
-        if (text.length() >= pattern.length()) {
-            int[] failureTable = buildFailureTable(pattern, comparator);
-
-            int check = 0;
-            int start = 0;
-            int j = 0;
-            while (check < text.length() && pattern.length() <= text.length()
-                    && text.length() - start >= pattern.length()) {
-                if (comparator.compare(text.charAt(check), pattern.charAt(j)) == 0) {
-                    check++;
-                    j++;
-                    if (j >= pattern.length()) {
-                        list.add(start);
-                        j = failureTable[j - 1];
-                        start = check - j;
-                    }
-                } else if (j == 0) {
-                    start = start + 1;
-                    check = start;
-                } else {
-                    j = failureTable[j - 1];
-                    start = check - j;
-                }
-            }
-        }
-        return list;
+        new CompiledKmp(pattern, comparator).search(text, sink);
     }
 
     /**
@@ -115,6 +132,74 @@ public class PatternMatching {
         return failureTable;
     }
 
+    /**
+     * Shift-Or (bitap) algorithm that keeps every partial match of the
+     * pattern in the bits of a word and updates them all with one shift and
+     * one OR per text character. Works best for patterns of up to 64
+     * characters, which fit in a single long; longer patterns use several.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> bitap(CharSequence pattern, CharSequence text,
+                                      CharacterComparator comparator) {
+        return bitap(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Runs the Shift-Or (bitap) algorithm and appends the starting index of
+     * each match to the given list.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList bitap(CharSequence pattern, CharSequence text,
+                                     CharacterComparator comparator,
+                                     IntMatchList list) {
+        bitap(pattern, text, comparator, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Runs the Shift-Or (bitap) algorithm and hands the starting index of
+     * each match to the given sink, stopping early once the sink returns
+     * false.
+     *
+     * To search many texts for the same pattern, compile it once with
+     * CompiledBitap instead.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void bitap(CharSequence pattern, CharSequence text,
+                             CharacterComparator comparator, MatchSink sink) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to perform bitap with");
+        }
+        if (comparator == null || text == null || sink == null) {
+            throw new IllegalArgumentException("Cannot perform bitap with a null argument");
+        }
+        new CompiledBitap(pattern, comparator).search(text, sink);
+    }
+
     /**
      * Boyer Moore algorithm that relies on last occurrence table. Works better
      * with large alphabets.
@@ -136,48 +221,59 @@ public class PatternMatching {
     public static List<Integer> boyerMoore(CharSequence pattern,
                                            CharSequence text,
                                            CharacterComparator comparator) {
+        return boyerMoore(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm and appends the starting index of each
+     * match to the given primitive list instead of building a list of boxed
+     * Integers.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for the pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList boyerMoore(CharSequence pattern,
+                                          CharSequence text,
+                                          CharacterComparator comparator,
+                                          IntMatchList list) {
+        boyerMoore(pattern, text, comparator, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm and hands the starting index of each
+     * match to the given sink as soon as it is found. Nothing is allocated
+     * per match, and the search stops early once the sink returns false.
+     *
+     * To search many texts for the same pattern, compile it once with
+     * CompiledBoyerMoore instead.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for the pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void boyerMoore(CharSequence pattern, CharSequence text,
+                                  CharacterComparator comparator,
+                                  MatchSink sink) {
         if (pattern == null || pattern.length() == 0) {
             throw new IllegalArgumentException("Invalid pattern for Boyer Moore");
         }
-        if (text == null || comparator == null) {
+        if (text == null || comparator == null || sink == null) {
             throw new IllegalArgumentException("Cannot perform Boyer Moore with null argument");
         }
-        LinkedList<Integer> list = new LinkedList<>();
-        int start = 0;
-        int j = pattern.length() - 1;
-        int check = j;
-        if (pattern.length() <= text.length()) {
-            Map<Character, Integer> lastTable = buildLastTable(pattern);
-            while (start <= text.length() - pattern.length()) {
-                if (comparator.compare(pattern.charAt(j), text.charAt(check)) == 0) {
-                    if (check == start) {
-                        list.add(start);
-                        start++;
-                        check = start + pattern.length() - 1;
-                        j = pattern.length() - 1;
-                    } else {
-                        check--;
-                        j--;
-                    }
-                } else if (lastTable.getOrDefault(text.charAt(check), -1) < j) {
-                    if (lastTable.getOrDefault(text.charAt(check), -1) == -1) {
-                        start = check + 1;
-                        check = start + pattern.length() - 1;
-                        j = pattern.length() - 1;
-                    } else {
-                        j = lastTable.get(text.charAt(check));
-                        start = check - j;
-                        check = start + pattern.length() - 1;
-                        j = pattern.length() - 1;
-                    }
-                } else {
-                    start++;
-                    check = start + pattern.length() - 1;
-                    j = pattern.length() - 1;
-                }
-            }
-        }
-        return list;
+        new CompiledBoyerMoore(pattern, comparator).search(text, sink);
     }
 
     /**
@@ -201,6 +297,10 @@ public class PatternMatching {
      *
      * If the pattern is empty, return an empty map.
      *
+     * The returned map is a read-only view over a LastOccurrenceTable. The
+     * Boyer Moore implementation uses that table directly, since looking a
+     * char up there does not box it.
+     *
      * @param pattern a pattern you are building last table for
      * @return a Map with keys of all of the characters in the pattern mapping
      * to their last occurrence in the pattern
@@ -210,18 +310,198 @@ public class PatternMatching {
         if (pattern == null) {
             throw new IllegalArgumentException("Cannot build last table with null pattern");
         }
-        HashMap<Character, Integer> lastTable = new HashMap<Character, Integer>();
-        for (int i = 0; i < pattern.length(); i++) {
-            lastTable.put(pattern.charAt(i), i);
+        return new LastOccurrenceTable(pattern).asMap();
+    }
+
+    /**
+     * Builds the last occurrence table for a comparator that may treat
+     * different chars as equal.
+     *
+     * The keys are canonical characters, so every character the comparator
+     * treats as equal shares one entry. For a CanonicalComparator the key of
+     * x is comparator.canonicalize(x); for any other comparator it is the
+     * first character of the pattern that equals x.
+     *
+     * Ex. pattern = Octocat, case insensitive comparator
+     *
+     * table.get(o) = 3
+     * table.get(c) = 4
+     * table.get(t) = 6
+     * table.get(a) = 5
+     * table.get(everything else) = null
+     *
+     * @param pattern    a pattern you are building last table for
+     * @param comparator the comparator used to check if characters are equal
+     * @return a Map with the canonical character of each character in the
+     * pattern mapping to its last occurrence in the pattern
+     * @throws java.lang.IllegalArgumentException if pattern or comparator is
+     *                                            null
+     */
+    public static Map<Character, Integer> buildLastTable(CharSequence pattern,
+                                                         CharacterComparator comparator) {
+        if (pattern == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot build last table with null argument");
+        }
+        return new LastOccurrenceTable(pattern, new EquivalenceTable(pattern, comparator)).asMap();
+    }
+
+    /**
+     * Boyer Moore algorithm that uses the strong good suffix rule and the
+     * Galil rule on top of the last occurrence table.
+     *
+     * On a mismatch the pattern is shifted by the larger of the bad character
+     * shift and the good suffix shift. After a full match it is shifted by
+     * the period of the pattern, and the prefix that is already known to
+     * match is not compared again. Together this keeps the number of
+     * comparisons linear in the length of the text, even for periodic
+     * patterns such as aaa...ab where plain Boyer Moore is quadratic.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for the pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> boyerMooreGalil(CharSequence pattern,
+                                                CharSequence text,
+                                                CharacterComparator comparator) {
+        return boyerMooreGalil(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm with the good suffix and Galil rules and
+     * appends the starting index of each match to the given list.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for the pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList boyerMooreGalil(CharSequence pattern,
+                                               CharSequence text,
+                                               CharacterComparator comparator,
+                                               IntMatchList list) {
+        boyerMooreGalil(pattern, text, comparator, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Runs the Boyer Moore algorithm with the good suffix and Galil rules and
+     * hands the starting index of each match to the given sink, stopping
+     * early once the sink returns false.
+     *
+     * To search many texts for the same pattern, compile it once with
+     * CompiledBoyerMooreGalil instead.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for the pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void boyerMooreGalil(CharSequence pattern, CharSequence text,
+                                       CharacterComparator comparator,
+                                       MatchSink sink) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern for Boyer Moore");
+        }
+        if (text == null || comparator == null || sink == null) {
+            throw new IllegalArgumentException("Cannot perform Boyer Moore with null argument");
+        }
+        new CompiledBoyerMooreGalil(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Builds the strong good suffix table used by boyerMooreGalil().
+     *
+     * Index j of the table holds how far the pattern can be shifted when the
+     * characters after j matched the text but the character at j did not.
+     * The shift lines the matched suffix up with its rightmost other
+     * occurrence in the pattern that is preceded by a different character,
+     * or failing that with the longest prefix of the pattern that is also a
+     * suffix of the matched part. Index 0 therefore holds the period of the
+     * pattern, which is the shift to use after a full match.
+     *
+     * Ex.
+     * pattern:          a  b  b  a  b  a  b
+     * goodSuffixTable: [5, 5, 5, 2, 5, 4, 1]
+     *
+     * If the pattern is empty, return an empty array.
+     *
+     * @param pattern    a pattern you are building a good suffix table for
+     * @param comparator you MUST use this to check if characters are equal
+     * @return integer array holding the good suffix shifts
+     * @throws java.lang.IllegalArgumentException if the pattern or comparator
+     *                                            is null
+     */
+    public static int[] buildGoodSuffixTable(CharSequence pattern,
+                                             CharacterComparator comparator) {
+        if (pattern == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot create a good suffix table with null argument");
+        }
+        int m = pattern.length();
+        int[] goodSuffix = new int[m];
+        if (m == 0) {
+            return goodSuffix;
+        }
+
+        // suffixes[i] is the length of the longest suffix of pattern[0..i]
+        // that is also a suffix of the whole pattern
+        int[] suffixes = new int[m];
+        suffixes[m - 1] = m;
+        int g = m - 1;
+        int f = m - 1;
+        for (int i = m - 2; i >= 0; i--) {
+            if (i > g && suffixes[i + m - 1 - f] < i - g) {
+                suffixes[i] = suffixes[i + m - 1 - f];
+            } else {
+                if (i < g) {
+                    g = i;
+                }
+                f = i;
+                while (g >= 0 && comparator.compare(pattern.charAt(g),
+                        pattern.charAt(g + m - 1 - f)) == 0) {
+                    g--;
+                }
+                suffixes[i] = f - g;
+            }
+        }
+
+        for (int i = 0; i < m; i++) {
+            goodSuffix[i] = m;
+        }
+        int j = 0;
+        for (int i = m - 1; i >= 0; i--) {
+            if (suffixes[i] == i + 1) {
+                while (j < m - 1 - i) {
+                    if (goodSuffix[j] == m) {
+                        goodSuffix[j] = m - 1 - i;
+                    }
+                    j++;
+                }
+            }
+        }
+        for (int i = 0; i <= m - 2; i++) {
+            goodSuffix[m - 1 - suffixes[i]] = m - 1 - i;
         }
-        return lastTable;
+        return goodSuffix;
     }
 
     /**
      * Prime base used for Rabin-Karp hashing.
      * DO NOT EDIT!
      */
-    private static final int BASE = 113;
+    static final int BASE = 113;
 
     /**
      * Runs the Rabin-Karp algorithm. This algorithms generates hashes for the
@@ -236,9 +516,15 @@ public class PatternMatching {
      * formula for it is:
      *
      * sum of: c * BASE ^ (pattern.length - 1 - i)
-     *   c is the integer value of the current character, and
+     *   c is the id of the current character's class in the pattern's
+     *     EquivalenceTable plus one, or 0 if it is in no class, and
      *   i is the index of the character
      *
+     * Hashing classes instead of raw character values means that a window the
+     * comparator treats as equal to the pattern always has the pattern's hash,
+     * as CompiledRabinKarp describes. Classes are numbered in order of first
+     * appearance in the pattern.
+     *
      * We recommend building the hash for the pattern and the first m characters
      * of the text by starting at index (m - 1) to efficiently exponentiate the
      * BASE. This allows you to avoid using Math.pow().
@@ -251,10 +537,11 @@ public class PatternMatching {
      * possible for BASE^m will overflow. So, you would not want to do
      * BASE^m / BASE to calculate BASE^(m - 1).
      *
-     * Ex. Hashing "bunn" as a substring of "bunny" with base 113
+     * Ex. Hashing "bunn" as a substring of "bunny" with base 113, where the
+     * pattern "bunn" puts b, u and n in classes 0, 1 and 2
      * = (b * 113 ^ 3) + (u * 113 ^ 2) + (n * 113 ^ 1) + (n * 113 ^ 0)
-     * = (98 * 113 ^ 3) + (117 * 113 ^ 2) + (110 * 113 ^ 1) + (110 * 113 ^ 0)
-     * = 142910419
+     * = (1 * 113 ^ 3) + (2 * 113 ^ 2) + (3 * 113 ^ 1) + (3 * 113 ^ 0)
+     * = 1468777
      *
      * Another key point of this algorithm is that updating the hash from
      * one substring to the next substring must be O(1). To update the hash,
@@ -262,10 +549,11 @@ public class PatternMatching {
      * BASE, and add the newChar as shown by this formula:
      * (oldHash - oldChar * BASE ^ (pattern.length - 1)) * BASE + newChar
      *
-     * Ex. Shifting from "bunn" to "unny" in "bunny" with base 113
+     * Ex. Shifting from "bunn" to "unny" in "bunny" with base 113, where y is
+     * in no class of the pattern
      * hash("unny") = (hash("bunn") - b * 113 ^ 3) * 113 + y
-     *              = (142910419 - 98 * 113 ^ 3) * 113 + 121
-     *              = 170236090
+     *              = (1468777 - 1 * 113 ^ 3) * 113 + 0
+     *              = 2924440
      *
      * Keep in mind that calculating exponents is not O(1) in general, so you'll
      * need to keep track of what BASE^(m - 1) is for updating the hash.
@@ -284,50 +572,406 @@ public class PatternMatching {
     public static List<Integer> rabinKarp(CharSequence pattern,
                                           CharSequence text,
                                           CharacterComparator comparator) {
+        return rabinKarp(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Runs the Rabin-Karp algorithm and appends the starting index of each
+     * match to the given primitive list instead of building a list of boxed
+     * Integers.
+     *
+     * @param pattern    a string you're searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList rabinKarp(CharSequence pattern,
+                                         CharSequence text,
+                                         CharacterComparator comparator,
+                                         IntMatchList list) {
+        rabinKarp(pattern, text, comparator, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Runs the Rabin-Karp algorithm and hands the starting index of each
+     * match to the given sink as soon as it is found. Nothing is allocated
+     * per match, and the search stops early once the sink returns false.
+     *
+     * To search many texts for the same pattern, compile it once with
+     * CompiledRabinKarp instead.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void rabinKarp(CharSequence pattern, CharSequence text,
+                                 CharacterComparator comparator,
+                                 MatchSink sink) {
         if (pattern == null || pattern.length() == 0) {
             throw new IllegalArgumentException("Invalid pattern for Rabin Karp");
         }
-        if (text == null || comparator == null) {
+        if (text == null || comparator == null || sink == null) {
             throw new IllegalArgumentException("Cannot perform Rabin Karp with null argument");
         }
-        LinkedList<Integer> list = new LinkedList<Integer>();
-        if (pattern.length() <= text.length()) {
-            int patternHash = 0;
-            int textHash = 0;
-            int start = 0;
-            int maxExponent = 0;
-            for (int i = 0; i < pattern.length(); i++) {
-                int exponent = 1;
-                for (int j = pattern.length() - 1; j > i; j--) {
-                    exponent *= BASE;
-                }
-                patternHash += pattern.charAt(i) * exponent;
-                textHash += text.charAt(i) * exponent;
-                if (exponent > maxExponent) {
-                    maxExponent = exponent;
-                }
-            }
+        new CompiledRabinKarp(pattern, comparator).search(text, sink);
+    }
 
-            while (start <= (text.length() - pattern.length())) {
-                if (start != 0) {
-                    textHash = (textHash - text.charAt(start - 1) * maxExponent) * BASE
-                            + text.charAt(start + pattern.length() - 1);
-                }
-                if (patternHash == textHash) {
-                    boolean matches = true;
-                    for (int i = start; i < (start + pattern.length()); i++) {
-                        if (comparator.compare(text.charAt(i), pattern.charAt(i - start)) != 0) {
-                            matches = false;
-                            break;
-                        }
-                    }
-                    if (matches) {
-                        list.add(start);
-                    }
-                }
-                start++;
+    /**
+     * Runs the Rabin-Karp algorithm with 64-bit hashes taken modulo the
+     * Mersenne prime 2^61 - 1 and a randomly chosen base.
+     *
+     * rabinKarp() uses an int hash with a fixed BASE, which wraps around for
+     * patterns longer than a few characters, so long patterns collide often
+     * and many windows have to be checked character by character. Here the
+     * chance of two different windows colliding is at most
+     * m / (2^61 - 1), and both the pattern hash and BASE ^ (m - 1) are
+     * computed in O(m). Characters are hashed by their class in the
+     * pattern's EquivalenceTable plus one, exactly as in rabinKarp().
+     *
+     * @param pattern    a string you're searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> rabinKarpModular(CharSequence pattern,
+                                                 CharSequence text,
+                                                 CharacterComparator comparator) {
+        return rabinKarpModular(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Runs the modular Rabin-Karp algorithm and appends the starting index of
+     * each match to the given list.
+     *
+     * @param pattern    a string you're searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList rabinKarpModular(CharSequence pattern,
+                                                CharSequence text,
+                                                CharacterComparator comparator,
+                                                IntMatchList list) {
+        rabinKarpModular(pattern, text, comparator, (MatchSink) list);
+        return list;
+    }
+
+    /**
+     * Runs the modular Rabin-Karp algorithm and hands the starting index of
+     * each match to the given sink, stopping early once the sink returns
+     * false.
+     *
+     * To search many texts for the same pattern, compile it once with
+     * CompiledModularRabinKarp instead.
+     *
+     * @param pattern    a string you're searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void rabinKarpModular(CharSequence pattern, CharSequence text,
+                                        CharacterComparator comparator,
+                                        MatchSink sink) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern for Rabin Karp");
+        }
+        if (text == null || comparator == null || sink == null) {
+            throw new IllegalArgumentException("Cannot perform Rabin Karp with null argument");
+        }
+        new CompiledModularRabinKarp(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Texts shorter than this are searched with KMP, since its failure table
+     * is the cheapest preprocessing and dominates the cost on short texts.
+     */
+    static final int SHORT_TEXT = 128;
+
+    /**
+     * Patterns with at most this many distinct characters count as having a
+     * small alphabet, like DNA.
+     */
+    static final int SMALL_ALPHABET = 8;
+
+    /**
+     * Small alphabet patterns up to this length are searched with bitap.
+     * Longer ones shift far enough for Boyer Moore to win.
+     */
+    static final int SHORT_SMALL_ALPHABET_PATTERN = 16;
+
+    /**
+     * Patterns up to this length are searched with bitap whatever their
+     * alphabet, since Boyer Moore cannot shift far enough to pay off.
+     */
+    static final int TINY_PATTERN = 2;
+
+    /**
+     * Picks the algorithm expected to search the text fastest, from the
+     * length of the pattern and of the text, the number of distinct
+     * characters in the pattern and the kind of comparator.
+     *
+     * The cost model follows these measurements of ns per text character:
+     *
+     * short texts: preprocessing dominates, so KMP is cheapest
+     * large alphabets: Boyer Moore skips the most text once m is above 2,
+     *     and bitap wins for m of at most 2
+     * small alphabets: bitap wins up to about 16 characters; beyond that
+     *     Boyer Moore with the Galil rule does, since plain Boyer Moore
+     *     shifts little and repeats comparisons on periodic patterns
+     * custom comparators: every algorithm compares equivalence class ids
+     *     rather than calling the comparator, so the same rules apply, with
+     *     the alphabet counted in classes of equal characters
+     *
+     * The alphabet is counted without building the pattern's
+     * EquivalenceTable, which the chosen algorithm builds anyway, and
+     * without calling compare(): distinct characters are counted for the
+     * plain comparator, distinct canonical forms for a CanonicalComparator,
+     * and distinct characters for any other comparator, which may count a
+     * class more than once.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param textLength the length of the text that will be searched
+     * @param comparator the comparator used to check if characters are equal
+     * @return the algorithm to use
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public static Algorithm chooseAlgorithm(CharSequence pattern,
+                                            int textLength,
+                                            CharacterComparator comparator) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to choose an algorithm for");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Cannot choose an algorithm with a null comparator");
+        }
+        int m = pattern.length();
+        if (textLength < SHORT_TEXT) {
+            return Algorithm.KMP;
+        }
+        if (m <= TINY_PATTERN) {
+            return Algorithm.BITAP;
+        }
+        if (countAlphabet(pattern, comparator, SMALL_ALPHABET) > SMALL_ALPHABET) {
+            return Algorithm.BOYER_MOORE;
+        }
+        return m <= SHORT_SMALL_ALPHABET_PATTERN ? Algorithm.BITAP : Algorithm.BOYER_MOORE_GALIL;
+    }
+
+    /**
+     * Counts the distinct characters of the pattern, or their distinct
+     * canonical forms for a CanonicalComparator, stopping once there are
+     * more than limit of them.
+     *
+     * @param pattern    the pattern whose alphabet is counted
+     * @param comparator the comparator used to check if characters are equal
+     * @param limit      the count past which counting stops
+     * @return the number of distinct characters, or limit + 1 if there are
+     * more than limit
+     */
+    private static int countAlphabet(CharSequence pattern,
+                                     CharacterComparator comparator,
+                                     int limit) {
+        CanonicalComparator canonicalizer = comparator instanceof CanonicalComparator
+                ? (CanonicalComparator) comparator : null;
+        char[] seen = new char[limit + 1];
+        int count = 0;
+        for (int i = 0; i < pattern.length() && count <= limit; i++) {
+            char c = pattern.charAt(i);
+            if (canonicalizer != null) {
+                c = canonicalizer.canonicalize(c);
+            }
+            int k = 0;
+            while (k < count && seen[k] != c) {
+                k++;
+            }
+            if (k == count) {
+                seen[count++] = c;
             }
         }
+        return count;
+    }
+
+    /**
+     * Searches the text for the pattern with whichever algorithm
+     * chooseAlgorithm() expects to be fastest.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> search(CharSequence pattern, CharSequence text,
+                                       CharacterComparator comparator) {
+        return search(pattern, text, comparator, new IntMatchList()).asList();
+    }
+
+    /**
+     * Searches the text for the pattern with whichever algorithm
+     * chooseAlgorithm() expects to be fastest, and appends the starting index
+     * of each match to the given list.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param list       the list the match indices are appended to
+     * @return the same list that was passed in
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or list
+     *                                            is null
+     */
+    public static IntMatchList search(CharSequence pattern, CharSequence text,
+                                      CharacterComparator comparator,
+                                      IntMatchList list) {
+        search(pattern, text, comparator, (MatchSink) list);
         return list;
     }
+
+    /**
+     * Searches the text for the pattern with whichever algorithm
+     * chooseAlgorithm() expects to be fastest, and hands the starting index
+     * of each match to the given sink, stopping early once the sink returns
+     * false.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @param sink       the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text, comparator or sink
+     *                                            is null
+     */
+    public static void search(CharSequence pattern, CharSequence text,
+                              CharacterComparator comparator, MatchSink sink) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to search for");
+        }
+        if (text == null || comparator == null || sink == null) {
+            throw new IllegalArgumentException("Cannot search with a null argument");
+        }
+        if (text.length() < pattern.length()) {
+            return;
+        }
+        chooseAlgorithm(pattern, text.length(), comparator)
+                .compile(pattern, comparator).search(text, sink);
+    }
+
+    /**
+     * Checks whether the pattern occurs in the text, with whichever
+     * algorithm chooseAlgorithm() expects to be fastest. The search stops at
+     * the first match.
+     *
+     * To run a particular algorithm, use the contains() method of the
+     * pattern compiled by that Algorithm instead.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return true if the pattern occurs in the text
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static boolean contains(CharSequence pattern, CharSequence text,
+                                   CharacterComparator comparator) {
+        return indexOf(pattern, text, comparator) >= 0;
+    }
+
+    /**
+     * Finds the first match of the pattern in the text, with whichever
+     * algorithm chooseAlgorithm() expects to be fastest. The search stops at
+     * that match.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return the starting index of the first match, or -1 if there is none
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static int indexOf(CharSequence pattern, CharSequence text,
+                              CharacterComparator comparator) {
+        CompiledPattern.FirstMatch first = new CompiledPattern.FirstMatch();
+        search(pattern, text, comparator, first);
+        return first.index;
+    }
+
+    /**
+     * Counts the matches of the pattern in the text, overlapping ones
+     * included, with whichever algorithm chooseAlgorithm() expects to be
+     * fastest. No list of matches is built.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal
+     * @return the number of matches
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static int count(CharSequence pattern, CharSequence text,
+                            CharacterComparator comparator) {
+        CompiledPattern.MatchCounter counter = new CompiledPattern.MatchCounter();
+        search(pattern, text, comparator, counter);
+        return counter.count;
+    }
+
+    /**
+     * Searches a large text on several cores with whichever algorithm
+     * chooseAlgorithm() expects to be fastest. See ParallelSearch for how
+     * the text is split; texts shorter than two chunks are searched on the
+     * calling thread.
+     *
+     * @param pattern    the pattern you are searching for in a body of text
+     * @param text       the body of text where you search for pattern
+     * @param comparator you MUST use this to check if characters are equal;
+     *                   it is called from several threads at once
+     * @return list containing the starting index for each match found
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     */
+    public static List<Integer> parallelSearch(CharSequence pattern,
+                                               CharSequence text,
+                                               CharacterComparator comparator) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to search for");
+        }
+        if (text == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot search with a null argument");
+        }
+        CompiledPattern compiled = chooseAlgorithm(pattern, text.length(), comparator)
+                .compile(pattern, comparator);
+        return new ParallelSearch(compiled).search(text).asList();
+    }
 }
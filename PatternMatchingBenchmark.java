@@ -0,0 +1,344 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark harness for the string searching algorithms.
+ *
+ * Every algorithm is run over several kinds of text, for every pattern
+ * length and match density, and the harness reports the time per text
+ * character and the bytes allocated per search of an already compiled
+ * pattern, and separately the time it takes to compile the pattern, which
+ * for AUTO includes choosing the algorithm. Each case is warmed up before
+ * it is measured, and the best of the measured runs is reported to keep
+ * noise from the rest of the machine out of the numbers.
+ *
+ * Usage: java PatternMatchingBenchmark [filter]
+ *
+ * Only cases whose name contains the filter are run, for example
+ * "dna" or "BOYER_MOORE".
+ *
+ * A last case builds an AhoCorasick automaton from thousands of keywords
+ * over a CJK sized alphabet, which must fall back to its sparse edges, and
+ * checks that a keyword planted in the text is found.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class PatternMatchingBenchmark {
+
+    private static final int TEXT_LENGTH = 1 << 20;
+    private static final int[] PATTERN_LENGTHS = {4, 16, 64, 256};
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 10;
+    private static final long MIN_RUN_NANOS = 50_000_000L;
+    private static final int KEYWORDS = 10_000;
+    private static final int KEYWORD_LENGTH = 30;
+    private static final char CJK_FIRST = '\u4E00';
+    private static final int CJK_COUNT = 20_000;
+
+    private static final String[] WORDS = ("the of and to in is was that for it with as his on be at by had are but "
+            + "from or have an they which one you were her all she there would their we him been has when who "
+            + "will more no if out so said what up its about into than them can only other new some could time "
+            + "these two may then do first any my now such like our over man me even most made after also did "
+            + "many before must through back years where much your way well down should because each just those "
+            + "people how too little state good very make world still own see men work long get here between").split(" ");
+
+    /**
+     * How often the pattern is planted in the text.
+     */
+    private enum Density {
+        NONE(0), SPARSE(1 << 14), DENSE(1 << 6);
+
+        private final int spacing;
+
+        Density(int spacing) {
+            this.spacing = spacing;
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args an optional filter on the case names
+     */
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        Random random = new Random(1332);
+        String[] corpora = {"english", "dna", "binary", "worst-case"};
+        System.out.println(String.format(Locale.ROOT, "%-48s %10s %14s %8s %12s",
+                "case", "ns/char", "bytes/search", "matches", "ns/compile"));
+        for (String corpus : corpora) {
+            for (int m : PATTERN_LENGTHS) {
+                for (Density density : Density.values()) {
+                    if (corpus.equals("worst-case") && density == Density.SPARSE) {
+                        continue;
+                    }
+                    String[] input = buildInput(corpus, m, density, random);
+                    for (Algorithm algorithm : Algorithm.values()) {
+                        run(corpus, m, density, algorithm.name(), algorithm, input, filter);
+                    }
+                    run(corpus, m, density, "AUTO", null, input, filter);
+                }
+            }
+        }
+        runAhoCorasick(filter, random);
+    }
+
+    /**
+     * Builds an AhoCorasick automaton from KEYWORDS random CJK keywords,
+     * searches a text with one of them planted at the end, and prints the
+     * best search time per text character and the build time.
+     *
+     * @param filter only run if the case name contains this
+     * @param random the source of randomness
+     * @throws java.lang.IllegalStateException if the planted keyword is not
+     *                                         found
+     */
+    private static void runAhoCorasick(String filter, Random random) {
+        String label = "aho-corasick/cjk/k=" + KEYWORDS + "/m=" + KEYWORD_LENGTH;
+        if (!label.contains(filter)) {
+            return;
+        }
+        List<String> keywords = new ArrayList<>(KEYWORDS);
+        for (int k = 0; k < KEYWORDS; k++) {
+            StringBuilder keyword = new StringBuilder(KEYWORD_LENGTH);
+            for (int i = 0; i < KEYWORD_LENGTH; i++) {
+                keyword.append((char) (CJK_FIRST + random.nextInt(CJK_COUNT)));
+            }
+            keywords.add(keyword.toString());
+        }
+        StringBuilder builder = new StringBuilder(TEXT_LENGTH + KEYWORD_LENGTH);
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            builder.append((char) (CJK_FIRST + random.nextInt(CJK_COUNT)));
+        }
+        String text = builder.append(keywords.get(KEYWORDS / 2)).toString();
+        long start = System.nanoTime();
+        AhoCorasick automaton = new AhoCorasick(keywords, new CharacterComparator());
+        long built = System.nanoTime();
+        double bestNanos = Double.MAX_VALUE;
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long searchStart = System.nanoTime();
+            List<IntMatchList> matches = automaton.search(text);
+            long searched = System.nanoTime();
+            if (!matches.get(KEYWORDS / 2).asList().contains(TEXT_LENGTH)) {
+                throw new IllegalStateException("Planted keyword was not found by " + label);
+            }
+            if (i >= WARMUP_RUNS) {
+                bestNanos = Math.min(bestNanos, searched - searchStart);
+            }
+        }
+        // the matches column says which form the automaton took, and the
+        // compile column holds the time it took to build
+        System.out.println(String.format(Locale.ROOT, "%-48s %10.3f %14s %8s %12d", label,
+                bestNanos / text.length(), "n/a", automaton.isDense() ? "dense" : "sparse", built - start));
+    }
+
+    /**
+     * Measures one case and prints its result line.
+     *
+     * @param corpus    the name of the kind of text
+     * @param m         the pattern length
+     * @param density   how often the pattern was planted
+     * @param name      the name of the algorithm
+     * @param algorithm the algorithm, or null to let PatternMatching choose
+     * @param input     the pattern followed by the text
+     * @param filter    only cases whose name contains this are run
+     */
+    private static void run(String corpus, int m, Density density, String name,
+                            Algorithm algorithm, String[] input, String filter) {
+        String label = corpus + "/m=" + m + "/" + density.name().toLowerCase(Locale.ROOT) + "/" + name;
+        if (!label.contains(filter)) {
+            return;
+        }
+        String pattern = input[0];
+        String text = input[1];
+        CharacterComparator comparator = new CharacterComparator();
+        Counter counter = new Counter();
+        CompiledPattern compiled = compile(algorithm, pattern, text.length(), comparator);
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            timeRun(compiled, text, counter);
+            timeCompile(algorithm, pattern, text.length(), comparator);
+        }
+        double bestNanos = Double.MAX_VALUE;
+        double bestCompileNanos = Double.MAX_VALUE;
+        long bytes = -1;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long allocatedBefore = allocatedBytes();
+            long[] result = timeRun(compiled, text, counter);
+            long allocatedAfter = allocatedBytes();
+            bestNanos = Math.min(bestNanos, result[0] / (double) result[1]);
+            if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                long perSearch = (allocatedAfter - allocatedBefore) / result[1];
+                bytes = bytes < 0 ? perSearch : Math.min(bytes, perSearch);
+            }
+            long[] compiles = timeCompile(algorithm, pattern, text.length(), comparator);
+            bestCompileNanos = Math.min(bestCompileNanos, compiles[0] / (double) compiles[1]);
+        }
+        System.out.println(String.format(Locale.ROOT, "%-48s %10.3f %14s %8d %12.0f", label,
+                bestNanos / text.length(), bytes < 0 ? "n/a" : Long.toString(bytes), counter.matches,
+                bestCompileNanos));
+    }
+
+    /**
+     * Compiles the pattern the way a search with the given algorithm would.
+     *
+     * @param algorithm  the algorithm, or null to let PatternMatching choose
+     * @param pattern    the pattern to compile
+     * @param textLength the length of the text it will be searched in
+     * @param comparator the comparator to use
+     * @return the compiled pattern
+     */
+    private static CompiledPattern compile(Algorithm algorithm, String pattern, int textLength,
+                                           CharacterComparator comparator) {
+        if (algorithm == null) {
+            algorithm = PatternMatching.chooseAlgorithm(pattern, textLength, comparator);
+        }
+        return algorithm.compile(pattern, comparator);
+    }
+
+    /**
+     * Repeats compiling the pattern until at least MIN_RUN_NANOS / 10 have
+     * passed.
+     *
+     * @param algorithm  the algorithm, or null to let PatternMatching choose
+     * @param pattern    the pattern to compile
+     * @param textLength the length of the text it will be searched in
+     * @param comparator the comparator to use
+     * @return the elapsed nanoseconds and the number of compiles
+     */
+    private static long[] timeCompile(Algorithm algorithm, String pattern, int textLength,
+                                      CharacterComparator comparator) {
+        long compiles = 0;
+        int lengths = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            lengths += compile(algorithm, pattern, textLength, comparator).length();
+            compiles++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_RUN_NANOS / 10);
+        if (lengths == 0) {
+            throw new IllegalStateException("Compiled an empty pattern");
+        }
+        return new long[]{elapsed, compiles};
+    }
+
+    /**
+     * Repeats the search with an already compiled pattern until at least
+     * MIN_RUN_NANOS have passed.
+     *
+     * @param compiled the compiled pattern to search for
+     * @param text     the text to search
+     * @param counter  the sink that counts the matches
+     * @return the elapsed nanoseconds and the number of searches
+     */
+    private static long[] timeRun(CompiledPattern compiled, String text, Counter counter) {
+        long searches = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            counter.matches = 0;
+            compiled.search(text, counter);
+            searches++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_RUN_NANOS);
+        return new long[]{elapsed, searches};
+    }
+
+    /**
+     * Builds the pattern and the text for one case.
+     *
+     * @param corpus  the kind of text to build
+     * @param m       the pattern length
+     * @param density how often to plant the pattern in the text
+     * @param random  the source of randomness
+     * @return the pattern followed by the text
+     */
+    private static String[] buildInput(String corpus, int m, Density density, Random random) {
+        StringBuilder text = new StringBuilder(TEXT_LENGTH + m);
+        String pattern;
+        if (corpus.equals("worst-case")) {
+            // aaa...a against aa...ab makes every alignment compare m - 1
+            // characters before failing, and against aa...a makes every
+            // alignment a match
+            for (int i = 0; i < TEXT_LENGTH; i++) {
+                text.append('a');
+            }
+            StringBuilder periodic = new StringBuilder(m);
+            for (int i = 0; i < m - 1; i++) {
+                periodic.append('a');
+            }
+            pattern = periodic.append(density == Density.NONE ? 'b' : 'a').toString();
+            return new String[]{pattern, text.toString()};
+        }
+        while (text.length() < TEXT_LENGTH) {
+            appendRandom(corpus, text, random);
+        }
+        text.setLength(TEXT_LENGTH);
+        // drawn separately from the text, so with NONE the only matches are
+        // ones that occur by chance
+        StringBuilder source = new StringBuilder();
+        while (source.length() < m) {
+            appendRandom(corpus, source, random);
+        }
+        pattern = source.substring(0, m);
+        if (density.spacing > 0) {
+            for (int i = 0; i + m <= TEXT_LENGTH; i += Math.max(density.spacing, m)) {
+                text.replace(i, i + m, pattern);
+            }
+        }
+        return new String[]{pattern, text.toString()};
+    }
+
+    /**
+     * Appends a chunk of random text of the given kind.
+     *
+     * @param corpus the kind of text
+     * @param text   the builder to append to
+     * @param random the source of randomness
+     */
+    private static void appendRandom(String corpus, StringBuilder text, Random random) {
+        if (corpus.equals("english")) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        } else if (corpus.equals("dna")) {
+            text.append("ACGT".charAt(random.nextInt(4)));
+        } else {
+            text.append((char) random.nextInt(256));
+        }
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if the
+     * JVM cannot tell.
+     *
+     * @return the allocated bytes, or -1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sink that counts the matches so the JIT cannot drop the searches.
+     */
+    private static final class Counter implements MatchSink {
+
+        private long matches;
+
+        @Override
+        public boolean onMatch(int index) {
+            matches++;
+            return true;
+        }
+    }
+}
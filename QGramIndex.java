@@ -0,0 +1,575 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverted index of the q-grams of a corpus of documents, which narrows a
+ * search down to the documents that can contain the pattern before any of
+ * them is scanned.
+ *
+ * A q-gram is a substring of q characters. Every distinct q-gram of the
+ * corpus has a posting list of the documents it occurs in, so a document
+ * that contains the pattern must be in the posting list of every q-gram of
+ * the pattern. A search intersects those lists, shortest first, and then
+ * runs one compiled pattern over the candidates only, which rules out the
+ * false positives the q-grams let through. Patterns shorter than q have no
+ * q-grams and fall back to scanning every document that is long enough.
+ *
+ * Posting lists hold increasing document numbers, stored as the gaps
+ * between them in a variable length byte code of 7 bits per byte, so a
+ * document that shares a common q-gram with the one before it costs a
+ * single byte. All the lists live in one byte array. The corpus is read
+ * three times while building: once to number the distinct q-grams and count
+ * their documents, once to size every list, and once to write them, so no
+ * uncompressed copy of the postings is ever held.
+ *
+ * A q-gram of up to four characters is packed into a long. The index
+ * accepts the plain CharacterComparator and any CanonicalComparator, for the
+ * same reason as SuffixArrayIndex, and is immutable once built. The
+ * documents themselves are kept for verification.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class QGramIndex {
+
+    /**
+     * The length of the q-grams unless another one is given.
+     */
+    public static final int DEFAULT_Q = 3;
+
+    /**
+     * The longest q-gram that fits in a long.
+     */
+    public static final int MAX_Q = Long.SIZE / Character.SIZE;
+
+    private final CharacterComparator comparator;
+    private final CanonicalComparator canonicalizer;
+    private final int q;
+    private final long gramMask;
+    private final String[] documents;
+    private final long totalLength;
+    private final GramTable grams;
+    // frequencies[g] is the number of documents that contain q-gram g
+    private final int[] frequencies;
+    // the posting list of q-gram g is postings[offsets[g], offsets[g + 1])
+    private final int[] offsets;
+    private final byte[] postings;
+
+    /**
+     * Builds the trigram index of the given documents.
+     *
+     * @param documents  the corpus that will be searched
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if documents is null or
+     *                                            contains a null document
+     * @throws java.lang.IllegalArgumentException if comparator is null,
+     *                                            or neither the plain
+     *                                            CharacterComparator nor a
+     *                                            CanonicalComparator
+     */
+    public QGramIndex(List<? extends CharSequence> documents,
+                      CharacterComparator comparator) {
+        this(documents, comparator, DEFAULT_Q);
+    }
+
+    /**
+     * Builds the q-gram index of the given documents.
+     *
+     * @param documents  the corpus that will be searched
+     * @param comparator you MUST use this to check if characters are equal
+     * @param q          the length of the indexed q-grams
+     * @throws java.lang.IllegalArgumentException if documents is null or
+     *                                            contains a null document
+     * @throws java.lang.IllegalArgumentException if comparator is null,
+     *                                            or neither the plain
+     *                                            CharacterComparator nor a
+     *                                            CanonicalComparator
+     * @throws java.lang.IllegalArgumentException if q is not in [1, MAX_Q]
+     * @throws java.lang.IllegalArgumentException if the postings do not fit
+     *                                            in one array
+     */
+    public QGramIndex(List<? extends CharSequence> documents,
+                      CharacterComparator comparator, int q) {
+        if (documents == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot build a q-gram index with a null argument");
+        }
+        if (q < 1 || q > MAX_Q) {
+            throw new IllegalArgumentException("Invalid q-gram length: " + q);
+        }
+        this.comparator = comparator;
+        this.q = q;
+        canonicalizer = SuffixArrayIndex.canonicalizer(comparator);
+        gramMask = q == MAX_Q ? -1L : (1L << (Character.SIZE * q)) - 1;
+        this.documents = new String[documents.size()];
+        long total = 0;
+        for (int d = 0; d < this.documents.length; d++) {
+            CharSequence document = documents.get(d);
+            if (document == null) {
+                throw new IllegalArgumentException("Invalid document at index " + d + " for the q-gram index");
+            }
+            this.documents[d] = document.toString();
+            total += document.length();
+        }
+        totalLength = total;
+
+        grams = new GramTable();
+        int[] counts = new int[GramTable.INITIAL_CAPACITY];
+        int[] lastDocument = new int[GramTable.INITIAL_CAPACITY];
+        for (int d = 0; d < this.documents.length; d++) {
+            String document = this.documents[d];
+            long gram = 0;
+            for (int i = 0; i < document.length(); i++) {
+                gram = (gram << Character.SIZE | canonical(document.charAt(i))) & gramMask;
+                if (i < q - 1) {
+                    continue;
+                }
+                int id = grams.intern(gram);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id * 2);
+                    lastDocument = Arrays.copyOf(lastDocument, id * 2);
+                }
+                if (counts[id] == 0 || lastDocument[id] != d) {
+                    counts[id]++;
+                    lastDocument[id] = d;
+                }
+            }
+        }
+        int gramCount = grams.size();
+        frequencies = Arrays.copyOf(counts, gramCount);
+
+        int[] sizes = new int[gramCount];
+        writePostings(sizes, null);
+        offsets = new int[gramCount + 1];
+        long end = 0;
+        for (int g = 0; g < gramCount; g++) {
+            offsets[g] = (int) end;
+            end += sizes[g];
+            if (end > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Cannot fit the postings of the corpus in one array");
+            }
+        }
+        offsets[gramCount] = (int) end;
+        postings = new byte[(int) end];
+        writePostings(Arrays.copyOf(offsets, gramCount), postings);
+    }
+
+    /**
+     * Returns the comparator this index was built with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the length of the indexed q-grams.
+     *
+     * @return q
+     */
+    public int getQ() {
+        return q;
+    }
+
+    /**
+     * Returns the number of documents in the corpus.
+     *
+     * @return the number of documents
+     */
+    public int size() {
+        return documents.length;
+    }
+
+    /**
+     * Returns the document with the given index.
+     *
+     * @param document the index of the document
+     * @return the document
+     * @throws java.lang.IndexOutOfBoundsException if document is not valid
+     */
+    public String getDocument(int document) {
+        return documents[document];
+    }
+
+    /**
+     * Returns the number of distinct q-grams in the corpus.
+     *
+     * @return the number of posting lists
+     */
+    public int gramCount() {
+        return frequencies.length;
+    }
+
+    /**
+     * Returns the size of the compressed posting lists.
+     *
+     * @return the number of bytes the postings take
+     */
+    public int postingsSize() {
+        return postings.length;
+    }
+
+    /**
+     * Finds the documents that contain every q-gram of the pattern, without
+     * checking whether they contain the pattern itself.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the indices of the candidate documents, in increasing order
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public int[] candidates(CharSequence pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to search the index for");
+        }
+        int m = pattern.length();
+        if (m < q) {
+            int[] all = new int[documents.length];
+            int size = 0;
+            for (int d = 0; d < documents.length; d++) {
+                if (documents[d].length() >= m) {
+                    all[size++] = d;
+                }
+            }
+            return Arrays.copyOf(all, size);
+        }
+
+        // the pattern's q-grams ordered by how many documents they are in,
+        // packed as frequency << 32 | id so that sorting orders them
+        long[] order = new long[m - q + 1];
+        long gram = 0;
+        for (int i = 0; i < m; i++) {
+            gram = (gram << Character.SIZE | canonical(pattern.charAt(i))) & gramMask;
+            if (i >= q - 1) {
+                int id = grams.find(gram);
+                if (id < 0) {
+                    return new int[0];
+                }
+                order[i - q + 1] = (long) frequencies[id] << 32 | id;
+            }
+        }
+        Arrays.sort(order);
+
+        int first = (int) order[0];
+        int[] result = new int[frequencies[first]];
+        int size = decode(first, result);
+        for (int k = 1; k < order.length && size > 0; k++) {
+            if (order[k] != order[k - 1]) {
+                size = intersect((int) order[k], result, size);
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Finds the documents that contain the pattern.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the indices of the documents that contain a match, in
+     * increasing order
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public int[] documents(CharSequence pattern) {
+        int[] candidates = candidates(pattern);
+        CompiledPattern compiled = compile(pattern);
+        int size = 0;
+        for (int d : candidates) {
+            if (compiled.contains(documents[d])) {
+                candidates[size++] = d;
+            }
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * Hands every match of the pattern in the corpus to the sink, together
+     * with the document it is in, stopping early once the sink returns
+     * false. Only the candidate documents are scanned.
+     *
+     * @param pattern the pattern you are searching for
+     * @param sink    the callback that receives each document and match
+     *                index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if sink is null
+     */
+    public void search(CharSequence pattern, DocumentMatchSink sink) {
+        int[] candidates = candidates(pattern);
+        if (sink == null) {
+            throw new IllegalArgumentException("Cannot search the index with a null sink");
+        }
+        CompiledPattern compiled = compile(pattern);
+        DocumentForwarder forwarder = new DocumentForwarder(sink);
+        for (int d : candidates) {
+            forwarder.document = d;
+            compiled.search(documents[d], forwarder);
+            if (forwarder.stopped) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compiles the pattern with the algorithm that suits documents of the
+     * average length of the corpus.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the compiled pattern
+     */
+    private CompiledPattern compile(CharSequence pattern) {
+        int averageLength = documents.length == 0 ? 0 : (int) (totalLength / documents.length);
+        return PatternMatching.chooseAlgorithm(pattern, averageLength, comparator)
+                .compile(pattern, comparator);
+    }
+
+    /**
+     * Returns the character the q-grams are built from.
+     *
+     * @param c the character of a document or pattern
+     * @return the canonical form of c
+     */
+    private char canonical(char c) {
+        return canonicalizer == null ? c : canonicalizer.canonicalize(c);
+    }
+
+    /**
+     * Walks the corpus in order and either adds up the size of every
+     * posting list or writes the lists out.
+     *
+     * @param cursors the size of each list so far, or the position the next
+     *                gap of each list is written at
+     * @param out     the array the lists are written to, or null to only
+     *                add up their sizes
+     */
+    private void writePostings(int[] cursors, byte[] out) {
+        int[] lastDocument = new int[cursors.length];
+        Arrays.fill(lastDocument, -1);
+        for (int d = 0; d < documents.length; d++) {
+            String document = documents[d];
+            long gram = 0;
+            for (int i = 0; i < document.length(); i++) {
+                gram = (gram << Character.SIZE | canonical(document.charAt(i))) & gramMask;
+                if (i < q - 1) {
+                    continue;
+                }
+                int id = grams.find(gram);
+                if (lastDocument[id] == d) {
+                    continue;
+                }
+                int gap = d - lastDocument[id];
+                lastDocument[id] = d;
+                if (out == null) {
+                    cursors[id] += (Integer.SIZE - Integer.numberOfLeadingZeros(gap) + 6) / 7;
+                } else {
+                    int position = cursors[id];
+                    while (gap >= 0x80) {
+                        out[position++] = (byte) (gap | 0x80);
+                        gap >>>= 7;
+                    }
+                    out[position++] = (byte) gap;
+                    cursors[id] = position;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a whole posting list.
+     *
+     * @param id     the q-gram whose list is decoded
+     * @param result the array the documents are written to
+     * @return the number of documents written
+     */
+    private int decode(int id, int[] result) {
+        int position = offsets[id];
+        int end = offsets[id + 1];
+        int document = -1;
+        int size = 0;
+        while (position < end) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            document += gap;
+            result[size++] = document;
+        }
+        return size;
+    }
+
+    /**
+     * Keeps only the documents that are also in a posting list, decoding the
+     * list as far as the last document kept so far.
+     *
+     * @param id     the q-gram whose list is intersected
+     * @param result the sorted documents kept so far, overwritten with the
+     *               intersection
+     * @param size   the number of documents kept so far
+     * @return the number of documents in the intersection
+     */
+    private int intersect(int id, int[] result, int size) {
+        int position = offsets[id];
+        int end = offsets[id + 1];
+        int document = -1;
+        int kept = 0;
+        int k = 0;
+        while (k < size && position < end) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            document += gap;
+            while (k < size && result[k] < document) {
+                k++;
+            }
+            if (k < size && result[k] == document) {
+                result[kept++] = document;
+                k++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Passes the matches of one document on to a DocumentMatchSink and
+     * remembers whether it asked to stop.
+     */
+    private static final class DocumentForwarder implements MatchSink {
+
+        private final DocumentMatchSink sink;
+        private int document;
+        private boolean stopped;
+
+        /**
+         * Creates a forwarder to the given sink.
+         *
+         * @param sink the sink that receives the matches
+         */
+        private DocumentForwarder(DocumentMatchSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public boolean onMatch(int index) {
+            stopped = !sink.onMatch(document, index);
+            return !stopped;
+        }
+    }
+
+    /**
+     * Open addressing hash table that numbers the distinct q-grams in the
+     * order they are first seen.
+     */
+    private static final class GramTable {
+
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        // ids[slot] is the number of the q-gram in keys[slot], or -1 if the
+        // slot is empty
+        private int[] ids = newIds(INITIAL_CAPACITY);
+        private int size;
+
+        /**
+         * Returns the number of distinct q-grams.
+         *
+         * @return the number of q-grams numbered so far
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * Finds the number of a q-gram.
+         *
+         * @param gram the packed q-gram
+         * @return its number, or -1 if it has not been seen
+         */
+        private int find(long gram) {
+            int mask = keys.length - 1;
+            for (int slot = slot(gram, mask); ids[slot] >= 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == gram) {
+                    return ids[slot];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Finds the number of a q-gram, numbering it if it is new.
+         *
+         * @param gram the packed q-gram
+         * @return its number
+         */
+        private int intern(long gram) {
+            int mask = keys.length - 1;
+            int slot = slot(gram, mask);
+            while (ids[slot] >= 0) {
+                if (keys[slot] == gram) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = gram;
+            ids[slot] = size;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        /**
+         * Doubles the table and reinserts every q-gram.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new long[oldKeys.length * 2];
+            ids = newIds(keys.length);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldIds[i] >= 0) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (ids[slot] >= 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+
+        /**
+         * Creates an array of empty slots.
+         *
+         * @param capacity the number of slots
+         * @return the array, filled with -1
+         */
+        private static int[] newIds(int capacity) {
+            int[] ids = new int[capacity];
+            Arrays.fill(ids, -1);
+            return ids;
+        }
+
+        /**
+         * Returns the home slot of a q-gram, mixing its bits so that
+         * q-grams that differ only in one character spread over the table.
+         *
+         * @param gram the packed q-gram
+         * @param mask the number of slots minus one
+         * @return the slot the q-gram is probed from
+         */
+        private static int slot(long gram, int mask) {
+            long h = gram * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+}
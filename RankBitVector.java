@@ -0,0 +1,114 @@
+/**
+ * Immutable bit vector that counts the set bits before any position in
+ * constant time.
+ *
+ * The bits are packed into longs, and the number of set bits before every
+ * block of eight longs is stored as an int, which adds one bit of overhead
+ * for every sixteen bits stored. A rank query reads one block count and
+ * adds the popcounts of at most eight longs.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class RankBitVector {
+
+    private static final int WORD_BITS = 6;
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = 3;
+
+    private final long[] words;
+    private final int length;
+    // blocks[b] is the number of set bits before word b * BLOCK_WORDS
+    private final int[] blocks;
+
+    /**
+     * Builds the rank directory over the given bits. Bit i is bit i % 64 of
+     * words[i / 64]. The array is kept, so it must not be modified
+     * afterwards.
+     *
+     * @param words  the packed bits
+     * @param length the number of bits
+     * @throws java.lang.IllegalArgumentException if words is null
+     * @throws java.lang.IllegalArgumentException if words is too short to
+     *                                            hold length bits
+     */
+    public RankBitVector(long[] words, int length) {
+        if (words == null) {
+            throw new IllegalArgumentException("Cannot build a bit vector from null words");
+        }
+        if (length < 0 || words.length < ((long) length + 63) >>> WORD_BITS) {
+            throw new IllegalArgumentException("Invalid length " + length + " for "
+                    + words.length + " words");
+        }
+        this.words = words;
+        this.length = length;
+        blocks = new int[(words.length >>> BLOCK_BITS) + 1];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            if ((w & (BLOCK_WORDS - 1)) == 0) {
+                blocks[w >>> BLOCK_BITS] = count;
+            }
+            count += Long.bitCount(words[w]);
+        }
+        if ((words.length & (BLOCK_WORDS - 1)) == 0) {
+            blocks[words.length >>> BLOCK_BITS] = count;
+        }
+    }
+
+    /**
+     * Returns the number of bits.
+     *
+     * @return the length of the bit vector
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the bit at the given position.
+     *
+     * @param i the position of the bit
+     * @return true if the bit is set
+     * @throws java.lang.IndexOutOfBoundsException if i is not in [0, length)
+     */
+    public boolean get(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Bit " + i + " out of range for length " + length);
+        }
+        return (words[i >>> WORD_BITS] & (1L << i)) != 0;
+    }
+
+    /**
+     * Counts the set bits before the given position.
+     *
+     * @param i the position to count up to, exclusive
+     * @return the number of set bits in [0, i)
+     * @throws java.lang.IndexOutOfBoundsException if i is not in [0, length]
+     */
+    public int rank1(int i) {
+        if (i < 0 || i > length) {
+            throw new IndexOutOfBoundsException("Rank " + i + " out of range for length " + length);
+        }
+        int word = i >>> WORD_BITS;
+        int count = blocks[word >>> BLOCK_BITS];
+        for (int w = word & ~(BLOCK_WORDS - 1); w < word; w++) {
+            count += Long.bitCount(words[w]);
+        }
+        int bit = i & 63;
+        if (bit != 0) {
+            count += Long.bitCount(words[word] & ((1L << bit) - 1));
+        }
+        return count;
+    }
+
+    /**
+     * Counts the clear bits before the given position.
+     *
+     * @param i the position to count up to, exclusive
+     * @return the number of clear bits in [0, i)
+     * @throws java.lang.IndexOutOfBoundsException if i is not in [0, length]
+     */
+    public int rank0(int i) {
+        return i - rank1(i);
+    }
+}
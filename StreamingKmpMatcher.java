@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Knuth-Morris-Pratt (KMP) matcher that consumes its text in chunks.
+ *
+ * KMP never looks back at the text; everything it needs to know about the
+ * characters it has seen is the length j of the pattern prefix they end
+ * with. The matcher keeps j between chunks, so a match that straddles a
+ * chunk boundary is still found, and an unbounded stream can be scanned in
+ * memory proportional to the pattern. Match indices are counted from the
+ * first character fed to the matcher and are reported as longs.
+ *
+ * A matcher holds the state of one stream, so unlike a CompiledKmp it must
+ * not be shared between threads. Several matchers can share one CompiledKmp.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class StreamingKmpMatcher {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CompiledKmp compiled;
+    private final EquivalenceTable classes;
+    private final int[] pattern;
+    private final int[] failureTable;
+    private final int[] automaton;
+    private final int accept;
+    // the length of the pattern prefix matched so far, or the position of
+    // its row in the automaton if the pattern has one
+    private int j;
+    private long position;
+
+    /**
+     * Creates a matcher for the given pattern.
+     *
+     * @param pattern    the pattern you are searching for
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if comparator is null
+     */
+    public StreamingKmpMatcher(CharSequence pattern,
+                               CharacterComparator comparator) {
+        this(new CompiledKmp(pattern, comparator));
+    }
+
+    /**
+     * Creates a matcher that reuses an already compiled pattern.
+     *
+     * @param compiled the compiled pattern
+     * @throws java.lang.IllegalArgumentException if compiled is null
+     */
+    public StreamingKmpMatcher(CompiledKmp compiled) {
+        if (compiled == null) {
+            throw new IllegalArgumentException("Cannot stream with a null pattern");
+        }
+        this.compiled = compiled;
+        classes = compiled.getClasses();
+        pattern = compiled.getPatternClasses();
+        failureTable = compiled.getFailureTable();
+        automaton = compiled.getAutomaton();
+        accept = pattern.length * (classes.size() + 1);
+    }
+
+    /**
+     * Returns the compiled pattern this matcher searches for.
+     *
+     * @return the compiled pattern
+     */
+    public CompiledKmp getCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Returns how many characters have been fed to the matcher, which is
+     * also the index the next character will have.
+     *
+     * @return the number of characters consumed
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Forgets the stream seen so far, so the matcher can be used on a new
+     * one starting at index 0.
+     */
+    public void reset() {
+        j = 0;
+        position = 0;
+    }
+
+    /**
+     * Feeds characters from an array to the matcher.
+     *
+     * @param chunk  the array holding the characters
+     * @param offset the index in the array of the first character
+     * @param length the number of characters to feed
+     * @param sink   the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.lang.IllegalArgumentException if chunk or sink is null
+     * @throws java.lang.IllegalArgumentException if offset and length do not
+     *                                            describe a part of chunk
+     */
+    public boolean feed(char[] chunk, int offset, int length,
+                        LongMatchSink sink) {
+        if (chunk == null || sink == null) {
+            throw new IllegalArgumentException("Cannot feed the matcher with a null argument");
+        }
+        if (offset < 0 || length < 0 || offset > chunk.length - length) {
+            throw new IllegalArgumentException("Invalid offset " + offset + " and length " + length
+                    + " for chunk of length " + chunk.length);
+        }
+        for (int i = offset; i < offset + length; i++) {
+            if (!step(chunk[i], sink)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Feeds the remaining characters of a buffer to the matcher. The
+     * buffer's position is advanced past every character that was consumed.
+     *
+     * @param chunk the buffer holding the characters
+     * @param sink  the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.lang.IllegalArgumentException if chunk or sink is null
+     */
+    public boolean feed(CharBuffer chunk, LongMatchSink sink) {
+        if (chunk == null || sink == null) {
+            throw new IllegalArgumentException("Cannot feed the matcher with a null argument");
+        }
+        if (chunk.hasArray()) {
+            int start = chunk.arrayOffset() + chunk.position();
+            int length = chunk.remaining();
+            char[] array = chunk.array();
+            for (int i = 0; i < length; i++) {
+                if (!step(array[start + i], sink)) {
+                    chunk.position(chunk.position() + i + 1);
+                    return false;
+                }
+            }
+            chunk.position(chunk.limit());
+            return true;
+        }
+        while (chunk.hasRemaining()) {
+            if (!step(chunk.get(), sink)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Feeds a sequence of characters to the matcher.
+     *
+     * @param chunk the characters to feed
+     * @param sink  the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.lang.IllegalArgumentException if chunk or sink is null
+     */
+    public boolean feed(CharSequence chunk, LongMatchSink sink) {
+        if (chunk == null || sink == null) {
+            throw new IllegalArgumentException("Cannot feed the matcher with a null argument");
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            if (!step(chunk.charAt(i), sink)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the reader to the end, or until the sink stops the search, and
+     * feeds everything read to the matcher. The reader is not closed.
+     *
+     * @param reader the reader to scan
+     * @param sink   the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.io.IOException if reading fails
+     * @throws java.lang.IllegalArgumentException if reader or sink is null
+     */
+    public boolean scan(Reader reader, LongMatchSink sink) throws IOException {
+        if (reader == null || sink == null) {
+            throw new IllegalArgumentException("Cannot scan with a null argument");
+        }
+        char[] buffer = new char[BUFFER_SIZE];
+        int read = reader.read(buffer);
+        while (read != -1) {
+            if (!feed(buffer, 0, read, sink)) {
+                return false;
+            }
+            read = reader.read(buffer);
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the stream with the given charset and scans it to the end, or
+     * until the sink stops the search. Match indices count decoded chars,
+     * not bytes. The stream is not closed.
+     *
+     * @param in      the stream to scan
+     * @param charset the charset the stream is encoded in
+     * @param sink    the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     * @throws java.io.IOException if reading fails
+     * @throws java.lang.IllegalArgumentException if any argument is null
+     */
+    public boolean scan(InputStream in, Charset charset, LongMatchSink sink)
+        throws IOException {
+        if (in == null || charset == null) {
+            throw new IllegalArgumentException("Cannot scan with a null argument");
+        }
+        return scan(new InputStreamReader(in, charset), sink);
+    }
+
+    /**
+     * Advances the matcher by one character.
+     *
+     * @param c    the next character of the stream
+     * @param sink the callback that receives each match index
+     * @return false if the sink stopped the search, true otherwise
+     */
+    private boolean step(char c, LongMatchSink sink) {
+        int id = classes.classOf(c);
+        if (automaton != null) {
+            j = automaton[j + id + 1];
+            position++;
+            return j != accept || sink.onMatch(position - pattern.length);
+        }
+        while (j > 0 && id != pattern[j]) {
+            j = failureTable[j - 1];
+        }
+        if (id == pattern[j]) {
+            j++;
+        }
+        position++;
+        if (j == pattern.length) {
+            j = failureTable[j - 1];
+            return sink.onMatch(position - pattern.length);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,644 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index over a fixed text that finds every occurrence of a pattern without
+ * scanning the text, for when the same text is searched for many patterns.
+ *
+ * The index holds the suffix array of the text, the starting indices of all
+ * of its suffixes in sorted order, so the suffixes that start with a pattern
+ * form one contiguous range. The array is built in O(n) with SA-IS
+ * (Nong, Zhang and Chan), following the implementation in the AtCoder
+ * Library, and the LCP array, the length of the longest common prefix of
+ * each pair of neighbouring suffixes, is built in O(n) with Kasai's
+ * algorithm.
+ *
+ * A query binary searches for the start of the range, as Manber and Myers
+ * describe. The search always probes the same middles for the same
+ * interval, so the common prefix of each middle with both ends of its
+ * interval is worked out from the LCP array once, when the index is built.
+ * A step then either decides which way to go from those lengths alone or
+ * resumes comparing where the pattern's common prefix with an end of the
+ * interval stops, so no pattern character is matched twice and finding the
+ * start costs O(m + log n). The range is then extended while the LCP array
+ * shows the next suffix still shares the whole pattern, so a query costs
+ * O(m + log n + occ) no matter how long the text is.
+ *
+ * Suffixes are ordered by character, which a comparator that only decides
+ * equality cannot do in general. The index therefore accepts the plain
+ * CharacterComparator, and any CanonicalComparator, whose text and patterns
+ * are indexed in canonical form.
+ *
+ * The index holds the text and four ints per character. It is immutable once
+ * built and may be shared between threads.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class SuffixArrayIndex {
+
+    private static final int THRESHOLD_NAIVE = 10;
+    private static final int THRESHOLD_DOUBLING = 40;
+
+    private final CharacterComparator comparator;
+    private final CanonicalComparator canonicalizer;
+    private final char[] text;
+    private final int[] suffixArray;
+    // lcp[i] is the longest common prefix of suffixes suffixArray[i] and
+    // suffixArray[i + 1]
+    private final int[] lcp;
+    // the longest common prefix of the suffix at each rank with the suffix
+    // at the low and at the high end of the interval that lowerBound()
+    // probes that rank in
+    private final int[] lowLcps;
+    private final int[] highLcps;
+
+    /**
+     * Builds the index of the given text.
+     *
+     * @param text       the body of text that will be searched
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     * @throws java.lang.IllegalArgumentException if comparator is neither the
+     *                                            plain CharacterComparator
+     *                                            nor a CanonicalComparator
+     */
+    public SuffixArrayIndex(CharSequence text, CharacterComparator comparator) {
+        if (text == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot build a suffix array with a null argument");
+        }
+        this.comparator = comparator;
+        canonicalizer = canonicalizer(comparator);
+        this.text = canonicalText(text, canonicalizer);
+        int[] s = new int[this.text.length];
+        int upper = 0;
+        for (int i = 0; i < s.length; i++) {
+            s[i] = this.text[i];
+            upper = Math.max(upper, s[i]);
+        }
+        suffixArray = saIs(s, upper);
+        lcp = buildLcp(this.text, suffixArray);
+        lowLcps = new int[suffixArray.length];
+        highLcps = new int[suffixArray.length];
+        fillIntervalLcps(-1, suffixArray.length);
+    }
+
+    /**
+     * Returns the comparator this index was built with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the length of the indexed text.
+     *
+     * @return the number of characters in the text
+     */
+    public int length() {
+        return text.length;
+    }
+
+    /**
+     * Checks whether the pattern occurs in the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return true if the pattern occurs in the text
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public boolean contains(CharSequence pattern) {
+        return lowerBound(canonicalPattern(pattern)) >= 0;
+    }
+
+    /**
+     * Counts the occurrences of the pattern in the text, overlapping ones
+     * included.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the number of occurrences
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public int count(CharSequence pattern) {
+        char[] query = canonicalPattern(pattern);
+        int first = lowerBound(query);
+        return first < 0 ? 0 : upperBound(first, query.length) - first;
+    }
+
+    /**
+     * Finds every occurrence of the pattern in the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return list containing the starting index of each occurrence, in
+     * increasing order
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public List<Integer> search(CharSequence pattern) {
+        IntMatchList matches = new IntMatchList();
+        locate(pattern, matches);
+        int[] sorted = matches.toArray();
+        Arrays.sort(sorted);
+        matches.clear();
+        for (int index : sorted) {
+            matches.add(index);
+        }
+        return matches.asList();
+    }
+
+    /**
+     * Hands the starting index of every occurrence of the pattern to the
+     * sink, stopping early once the sink returns false. The indices come in
+     * the order of the suffix array, not in increasing order.
+     *
+     * @param pattern the pattern you are searching for
+     * @param sink    the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if sink is null
+     */
+    public void locate(CharSequence pattern, MatchSink sink) {
+        char[] query = canonicalPattern(pattern);
+        if (sink == null) {
+            throw new IllegalArgumentException("Cannot locate with a null sink");
+        }
+        int first = lowerBound(query);
+        if (first < 0) {
+            return;
+        }
+        if (!sink.onMatch(suffixArray[first])) {
+            return;
+        }
+        for (int i = first; i < lcp.length && lcp[i] >= query.length; i++) {
+            if (!sink.onMatch(suffixArray[i + 1])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the starting index of the suffix at a rank of the suffix
+     * array.
+     *
+     * @param rank the rank of the suffix, from 0 for the smallest
+     * @return the starting index of that suffix in the text
+     * @throws java.lang.IndexOutOfBoundsException if rank is not in [0, n)
+     */
+    public int suffixAt(int rank) {
+        return suffixArray[rank];
+    }
+
+    /**
+     * Returns the suffix array. The array is shared, so it must not be
+     * modified.
+     *
+     * @return the suffix array
+     */
+    int[] getSuffixArray() {
+        return suffixArray;
+    }
+
+    /**
+     * Returns the indexed text in canonical form. The array is shared, so it
+     * must not be modified.
+     *
+     * @return the indexed text
+     */
+    char[] getText() {
+        return text;
+    }
+
+    /**
+     * Checks that the comparator can order characters and returns it as a
+     * CanonicalComparator if it is one.
+     *
+     * @param comparator the comparator to check
+     * @return the comparator if it is a CanonicalComparator, or null if it is
+     * the plain CharacterComparator
+     * @throws java.lang.IllegalArgumentException if it is neither
+     */
+    static CanonicalComparator canonicalizer(CharacterComparator comparator) {
+        if (comparator instanceof CanonicalComparator) {
+            return (CanonicalComparator) comparator;
+        }
+        if (!EquivalenceTable.isIdentity(comparator)) {
+            throw new IllegalArgumentException("Cannot index text with a comparator that has no canonical form");
+        }
+        return null;
+    }
+
+    /**
+     * Copies the text, mapping each character to its canonical form.
+     *
+     * @param text          the text to copy
+     * @param canonicalizer the comparator that canonicalises, or null to
+     *                      copy the characters as they are
+     * @return the canonical text
+     */
+    static char[] canonicalText(CharSequence text, CanonicalComparator canonicalizer) {
+        char[] copy = new char[text.length()];
+        for (int i = 0; i < copy.length; i++) {
+            char c = text.charAt(i);
+            copy[i] = canonicalizer == null ? c : canonicalizer.canonicalize(c);
+        }
+        return copy;
+    }
+
+    /**
+     * Checks a pattern and maps it to canonical form.
+     *
+     * @param pattern the pattern to check
+     * @return the canonical pattern
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    private char[] canonicalPattern(CharSequence pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to search the index for");
+        }
+        return canonicalText(pattern, canonicalizer);
+    }
+
+    /**
+     * Finds the rank of the smallest suffix that starts with the pattern.
+     *
+     * The suffix at low is smaller than the pattern and the one at high is
+     * not, with -1 and n standing for suffixes below and above all others,
+     * and lowLcp and highLcp are the number of characters the pattern
+     * shares with each. If the middle shares more with the end the pattern
+     * shares more with than the pattern does, it lies on the same side of
+     * the pattern as that end; if it shares less, it lies on the other side
+     * and shares that much with the pattern. Only when the two are equal
+     * are characters compared, starting after the shared ones.
+     *
+     * @param pattern the canonical pattern
+     * @return the rank of the first matching suffix, or -1 if none matches
+     */
+    private int lowerBound(char[] pattern) {
+        int m = pattern.length;
+        int low = -1;
+        int high = suffixArray.length;
+        int lowLcp = 0;
+        int highLcp = 0;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            int k;
+            if (lowLcp >= highLcp) {
+                int shared = lowLcps[middle];
+                if (shared > lowLcp) {
+                    low = middle;
+                    continue;
+                }
+                if (shared < lowLcp) {
+                    high = middle;
+                    highLcp = shared;
+                    continue;
+                }
+                k = lowLcp;
+            } else {
+                int shared = highLcps[middle];
+                if (shared > highLcp) {
+                    high = middle;
+                    continue;
+                }
+                if (shared < highLcp) {
+                    low = middle;
+                    lowLcp = shared;
+                    continue;
+                }
+                k = highLcp;
+            }
+            int start = suffixArray[middle];
+            while (k < m && start + k < text.length && text[start + k] == pattern[k]) {
+                k++;
+            }
+            if (k < m && (start + k == text.length || text[start + k] < pattern[k])) {
+                low = middle;
+                lowLcp = k;
+            } else {
+                high = middle;
+                highLcp = k;
+            }
+        }
+        return high < suffixArray.length && highLcp == m ? high : -1;
+    }
+
+    /**
+     * Works out, for every middle lowerBound() can probe in the interval
+     * (low, high), its longest common prefix with the suffixes at both
+     * ends, as the minimum of the LCP array between them.
+     *
+     * @param low  the rank at the low end of the interval, or -1
+     * @param high the rank at the high end of the interval, or n
+     * @return the longest common prefix of the suffixes at low and high, or
+     * 0 if either end is outside the suffix array
+     */
+    private int fillIntervalLcps(int low, int high) {
+        boolean inside = low >= 0 && high < suffixArray.length;
+        if (high - low <= 1) {
+            return inside ? lcp[low] : 0;
+        }
+        int middle = (low + high) >>> 1;
+        lowLcps[middle] = fillIntervalLcps(low, middle);
+        highLcps[middle] = fillIntervalLcps(middle, high);
+        return inside ? Math.min(lowLcps[middle], highLcps[middle]) : 0;
+    }
+
+    /**
+     * Finds the rank just past the last suffix that starts with the pattern,
+     * by following the LCP array from the first one.
+     *
+     * @param first the rank of the first matching suffix
+     * @param m     the length of the pattern
+     * @return one past the rank of the last matching suffix
+     */
+    private int upperBound(int first, int m) {
+        int end = first + 1;
+        while (end - 1 < lcp.length && lcp[end - 1] >= m) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Builds the LCP array with Kasai's algorithm. The suffixes are visited
+     * in text order, and the common prefix of one suffix with its neighbour
+     * is at most one shorter than that of the suffix before it, so h drops
+     * by at most one per step and the whole pass is O(n).
+     *
+     * @param s  the text
+     * @param sa the suffix array of the text
+     * @return the LCP array, of length n - 1
+     */
+    static int[] buildLcp(char[] s, int[] sa) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n - 1];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (h > 0) {
+                h--;
+            }
+            if (rank[i] == 0) {
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (j + h < n && i + h < n && s[j + h] == s[i + h]) {
+                h++;
+            }
+            lcp[rank[i] - 1] = h;
+        }
+        return lcp;
+    }
+
+    /**
+     * Builds the suffix array of s with SA-IS.
+     *
+     * Each suffix is S type if it is smaller than the suffix after it and
+     * L type otherwise, and the S type suffixes right after an L type one
+     * are the LMS suffixes. Sorting the LMS suffixes is enough to induce the
+     * order of all the others with two passes over the buckets. The LMS
+     * substrings are sorted by one induction, named, and if names repeat the
+     * LMS suffixes are sorted by recursing on the string of names, which is
+     * at most half as long.
+     *
+     * @param s     the string, with every value in [0, upper]
+     * @param upper the largest value s may contain
+     * @return the suffix array of s
+     */
+    static int[] saIs(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        if (n == 1) {
+            return new int[]{0};
+        }
+        if (n == 2) {
+            return s[0] < s[1] ? new int[]{0, 1} : new int[]{1, 0};
+        }
+        if (n < THRESHOLD_NAIVE) {
+            return saNaive(s);
+        }
+        if (n < THRESHOLD_DOUBLING) {
+            return saDoubling(s);
+        }
+
+        int[] sa = new int[n];
+        boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            ls[i] = s[i] == s[i + 1] ? ls[i + 1] : s[i] < s[i + 1];
+        }
+        // sumL[c] is where the L type suffixes of bucket c start, and sumS[c]
+        // where its S type suffixes start
+        int[] sumL = new int[upper + 1];
+        int[] sumS = new int[upper + 1];
+        for (int i = 0; i < n; i++) {
+            if (!ls[i]) {
+                sumS[s[i]]++;
+            } else {
+                sumL[s[i] + 1]++;
+            }
+        }
+        for (int i = 0; i <= upper; i++) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, j = 0; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[j++] = i;
+            }
+        }
+
+        induce(s, upper, sa, ls, sumL, sumS, lms);
+
+        if (m > 0) {
+            int[] sortedLms = new int[m];
+            int count = 0;
+            for (int v : sa) {
+                if (lmsMap[v] != -1) {
+                    sortedLms[count++] = v;
+                }
+            }
+            int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l++;
+                        r++;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    recUpper++;
+                }
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+
+            int[] recSa = saIs(recS, recUpper);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[recSa[i]];
+            }
+            induce(s, upper, sa, ls, sumL, sumS, sortedLms);
+        }
+        return sa;
+    }
+
+    /**
+     * Places the given LMS suffixes at the ends of their buckets, then
+     * induces the L type suffixes left to right and the S type suffixes
+     * right to left.
+     *
+     * @param s     the string
+     * @param upper the largest value s may contain
+     * @param sa    the array the suffixes are placed in
+     * @param ls    whether each suffix is S type
+     * @param sumL  the start of the L type part of each bucket
+     * @param sumS  the start of the S type part of each bucket
+     * @param lms   the LMS suffixes in the order to place them
+     */
+    private static void induce(int[] s, int upper, int[] sa, boolean[] ls,
+                               int[] sumL, int[] sumS, int[] lms) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        int[] buf = Arrays.copyOf(sumS, upper + 1);
+        for (int d : lms) {
+            if (d != n) {
+                sa[buf[s[d]]++] = d;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]++] = v - 1;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                sa[--buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+
+    /**
+     * Builds the suffix array of a short string by comparing the suffixes
+     * directly.
+     *
+     * @param s the string
+     * @return the suffix array of s
+     */
+    private static int[] saNaive(final int[] s) {
+        Integer[] sa = new Integer[s.length];
+        for (int i = 0; i < sa.length; i++) {
+            sa[i] = i;
+        }
+        Arrays.sort(sa, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer l, Integer r) {
+                if (l.intValue() == r.intValue()) {
+                    return 0;
+                }
+                int a = l;
+                int b = r;
+                while (a < s.length && b < s.length) {
+                    if (s[a] != s[b]) {
+                        return Integer.compare(s[a], s[b]);
+                    }
+                    a++;
+                    b++;
+                }
+                return a == s.length ? -1 : 1;
+            }
+        });
+        return unbox(sa);
+    }
+
+    /**
+     * Builds the suffix array of a short string by prefix doubling: after
+     * round k the suffixes are sorted by their first 2^k characters.
+     *
+     * @param s the string
+     * @return the suffix array of s
+     */
+    private static int[] saDoubling(int[] s) {
+        final int n = s.length;
+        Integer[] sa = new Integer[n];
+        final int[] rank = Arrays.copyOf(s, n);
+        int[] next = new int[n];
+        for (int i = 0; i < n; i++) {
+            sa[i] = i;
+        }
+        for (int k = 1; k < n; k *= 2) {
+            final int step = k;
+            Comparator<Integer> byPair = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer x, Integer y) {
+                    if (rank[x] != rank[y]) {
+                        return Integer.compare(rank[x], rank[y]);
+                    }
+                    int rx = x + step < n ? rank[x + step] : -1;
+                    int ry = y + step < n ? rank[y + step] : -1;
+                    return Integer.compare(rx, ry);
+                }
+            };
+            Arrays.sort(sa, byPair);
+            next[sa[0]] = 0;
+            for (int i = 1; i < n; i++) {
+                next[sa[i]] = next[sa[i - 1]] + (byPair.compare(sa[i - 1], sa[i]) < 0 ? 1 : 0);
+            }
+            System.arraycopy(next, 0, rank, 0, n);
+        }
+        return unbox(sa);
+    }
+
+    /**
+     * Copies boxed indices into an int array.
+     *
+     * @param boxed the indices
+     * @return the same indices as ints
+     */
+    private static int[] unbox(Integer[] boxed) {
+        int[] result = new int[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+            result[i] = boxed[i];
+        }
+        return result;
+    }
+}
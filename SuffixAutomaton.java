@@ -0,0 +1,500 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Suffix automaton (DAWG) of a fixed text, the smallest automaton that
+ * accepts exactly the substrings of the text, which answers substring and
+ * occurrence count queries in O(m).
+ *
+ * Each state stands for a set of substrings that end at exactly the same
+ * positions of the text, and its suffix link leads to the state of the
+ * longest suffix of those substrings that ends at more positions. The
+ * automaton is built online in O(n) and has at most 2n states and 3n
+ * transitions. Reading a pattern from the start state either falls off the
+ * automaton, in which case it is not a substring, or ends in the state whose
+ * end positions are exactly those of the pattern's occurrences.
+ *
+ * Transitions are kept in one open addressing hash table from state and
+ * character to the target state, so memory stays linear for any alphabet.
+ * The table, like the state arrays, grows with the automaton instead of
+ * being sized for the worst case of 2n states and 3n transitions. While the
+ * automaton is built each state also has a list of its transition
+ * characters, which cloning a state needs; those lists, and the lengths and
+ * suffix links only the build uses, are dropped once it is done, the state
+ * arrays are trimmed to the number of states, and the table, which is kept
+ * at most half full while transitions are added, is shrunk until it is up
+ * to three quarters full. After the build, every state knows how many end
+ * positions it has, and the suffix link tree is kept so that locate() can
+ * list the end positions below the pattern's state in time proportional to
+ * the number of occurrences.
+ *
+ * The index accepts the plain CharacterComparator and any
+ * CanonicalComparator, for the same reason as SuffixArrayIndex, and is
+ * immutable once built.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class SuffixAutomaton {
+
+    /**
+     * The longest text an automaton can be built for. A text of length n
+     * has up to 3n transitions, which must fit in the largest hash table
+     * while it is at most three quarters full.
+     */
+    public static final int MAX_TEXT_LENGTH = 1 << 28;
+
+    private static final long EMPTY = -1L;
+    private static final int MAX_SLOTS = 1 << 30;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final CharacterComparator comparator;
+    private final CanonicalComparator canonicalizer;
+    private final int textLength;
+    private int states;
+    // end position of the first occurrence of each state's substrings
+    private int[] firstEnd;
+    // number of end positions of each state's substrings
+    private int[] occurrences;
+    // clones share their end positions with the states below them
+    private boolean[] clone;
+    // hash table from state and character to the state the transition
+    // leads to
+    private int edges;
+    private long[] slotKeys;
+    private int[] slotTargets;
+    private int slotMask;
+    // children in the suffix link tree as linked lists per state
+    private final int[] childHead;
+    private final int[] childNext;
+    // only needed while the automaton is built, and dropped afterwards:
+    // the length of the longest substring of each state, its suffix link,
+    // and the characters of its transitions as a linked list
+    private int[] length;
+    private int[] link;
+    private int[] edgeHead;
+    private int[] edgeNext;
+    private char[] edgeChar;
+
+    /**
+     * Builds the suffix automaton of the given text.
+     *
+     * @param text       the body of text that will be searched
+     * @param comparator you MUST use this to check if characters are equal
+     * @throws java.lang.IllegalArgumentException if text or comparator is null
+     * @throws java.lang.IllegalArgumentException if comparator is neither the
+     *                                            plain CharacterComparator
+     *                                            nor a CanonicalComparator
+     * @throws java.lang.IllegalArgumentException if text is longer than
+     *                                            MAX_TEXT_LENGTH
+     */
+    public SuffixAutomaton(CharSequence text, CharacterComparator comparator) {
+        if (text == null || comparator == null) {
+            throw new IllegalArgumentException("Cannot build a suffix automaton with a null argument");
+        }
+        if (text.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Cannot build a suffix automaton of " + text.length()
+                    + " characters, the limit is " + MAX_TEXT_LENGTH);
+        }
+        this.comparator = comparator;
+        canonicalizer = SuffixArrayIndex.canonicalizer(comparator);
+        char[] canonical = SuffixArrayIndex.canonicalText(text, canonicalizer);
+        textLength = canonical.length;
+        // every character adds a state and a transition, and sometimes a
+        // clone and a few more transitions
+        int capacity = textLength + (textLength >> 2) + 16;
+        length = new int[capacity];
+        link = new int[capacity];
+        firstEnd = new int[capacity];
+        occurrences = new int[capacity];
+        clone = new boolean[capacity];
+        edgeHead = new int[capacity];
+        edgeNext = new int[capacity];
+        edgeChar = new char[capacity];
+        int slots = 16;
+        while (slots < 2L * textLength && slots < MAX_SLOTS) {
+            slots <<= 1;
+        }
+        slotKeys = new long[slots];
+        slotTargets = new int[slots];
+        slotMask = slots - 1;
+        Arrays.fill(slotKeys, EMPTY);
+
+        int start = newState();
+        link[start] = -1;
+        firstEnd[start] = -1;
+        int last = start;
+        for (int i = 0; i < textLength; i++) {
+            last = extend(last, canonical[i], i);
+        }
+
+        countOccurrences();
+        firstEnd = Arrays.copyOf(firstEnd, states);
+        occurrences = Arrays.copyOf(occurrences, states);
+        clone = Arrays.copyOf(clone, states);
+        slots = 16;
+        while (3L * slots < 4L * edges) {
+            slots <<= 1;
+        }
+        if (slots < slotKeys.length) {
+            rehash(slots);
+        }
+        childHead = new int[states];
+        childNext = new int[states];
+        Arrays.fill(childHead, -1);
+        for (int v = 1; v < states; v++) {
+            childNext[v] = childHead[link[v]];
+            childHead[link[v]] = v;
+        }
+        length = null;
+        link = null;
+        edgeHead = null;
+        edgeNext = null;
+        edgeChar = null;
+    }
+
+    /**
+     * Returns the comparator this automaton was built with.
+     *
+     * @return the comparator
+     */
+    public CharacterComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Returns the length of the indexed text.
+     *
+     * @return the number of characters in the text
+     */
+    public int length() {
+        return textLength;
+    }
+
+    /**
+     * Returns the number of states of the automaton, at most 2n.
+     *
+     * @return the number of states
+     */
+    public int stateCount() {
+        return states;
+    }
+
+    /**
+     * Checks whether the pattern is a substring of the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return true if the pattern occurs in the text
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public boolean contains(CharSequence pattern) {
+        return walk(pattern) >= 0;
+    }
+
+    /**
+     * Counts the occurrences of the pattern in the text, overlapping ones
+     * included.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the number of occurrences
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public int count(CharSequence pattern) {
+        int state = walk(pattern);
+        return state < 0 ? 0 : occurrences[state];
+    }
+
+    /**
+     * Finds the first occurrence of the pattern in the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return the starting index of the first occurrence, or -1 if there is
+     * none
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public int indexOf(CharSequence pattern) {
+        int state = walk(pattern);
+        return state < 0 ? -1 : firstEnd[state] - pattern.length() + 1;
+    }
+
+    /**
+     * Finds every occurrence of the pattern in the text.
+     *
+     * @param pattern the pattern you are searching for
+     * @return list containing the starting index of each occurrence, in
+     * increasing order
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    public List<Integer> search(CharSequence pattern) {
+        IntMatchList matches = new IntMatchList();
+        locate(pattern, matches);
+        int[] sorted = matches.toArray();
+        Arrays.sort(sorted);
+        matches.clear();
+        for (int index : sorted) {
+            matches.add(index);
+        }
+        return matches.asList();
+    }
+
+    /**
+     * Hands the starting index of every occurrence of the pattern to the
+     * sink, stopping early once the sink returns false. The end positions
+     * are collected from the suffix link subtree of the pattern's state, so
+     * the indices do not come in increasing order.
+     *
+     * @param pattern the pattern you are searching for
+     * @param sink    the callback that receives each match index
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     * @throws java.lang.IllegalArgumentException if sink is null
+     */
+    public void locate(CharSequence pattern, MatchSink sink) {
+        int state = walk(pattern);
+        if (sink == null) {
+            throw new IllegalArgumentException("Cannot locate with a null sink");
+        }
+        if (state < 0) {
+            return;
+        }
+        int offset = pattern.length() - 1;
+        int[] stack = new int[Math.min(states, 2 * occurrences[state])];
+        int top = 0;
+        stack[top++] = state;
+        while (top > 0) {
+            int v = stack[--top];
+            if (!clone[v] && !sink.onMatch(firstEnd[v] - offset)) {
+                return;
+            }
+            for (int child = childHead[v]; child >= 0; child = childNext[child]) {
+                stack[top++] = child;
+            }
+        }
+    }
+
+    /**
+     * Follows the pattern from the start state.
+     *
+     * @param pattern the pattern to read
+     * @return the state reached, or -1 if the pattern is not a substring
+     * @throws java.lang.IllegalArgumentException if the pattern is null or has
+     *                                            length 0
+     */
+    private int walk(CharSequence pattern) {
+        if (pattern == null || pattern.length() == 0) {
+            throw new IllegalArgumentException("Invalid pattern to search the automaton for");
+        }
+        int state = 0;
+        for (int i = 0; i < pattern.length() && state >= 0; i++) {
+            char c = pattern.charAt(i);
+            int slot = findSlot(state, canonicalizer == null ? c : canonicalizer.canonicalize(c));
+            state = slot < 0 ? -1 : slotTargets[slot];
+        }
+        return state;
+    }
+
+    /**
+     * Adds one character to the automaton.
+     *
+     * @param last the state of the whole text read so far
+     * @param c    the next character
+     * @param end  the index of c in the text
+     * @return the state of the whole text including c
+     */
+    private int extend(int last, char c, int end) {
+        int current = newState();
+        length[current] = length[last] + 1;
+        firstEnd[current] = end;
+        occurrences[current] = 1;
+        int p = last;
+        while (p >= 0 && findSlot(p, c) < 0) {
+            addEdge(p, c, current);
+            p = link[p];
+        }
+        if (p < 0) {
+            link[current] = 0;
+            return current;
+        }
+        int q = slotTargets[findSlot(p, c)];
+        if (length[p] + 1 == length[q]) {
+            link[current] = q;
+            return current;
+        }
+        int copy = newState();
+        length[copy] = length[p] + 1;
+        firstEnd[copy] = firstEnd[q];
+        link[copy] = link[q];
+        clone[copy] = true;
+        for (int edge = edgeHead[q]; edge >= 0; edge = edgeNext[edge]) {
+            addEdge(copy, edgeChar[edge], slotTargets[findSlot(q, edgeChar[edge])]);
+        }
+        while (p >= 0) {
+            int slot = findSlot(p, c);
+            if (slot < 0 || slotTargets[slot] != q) {
+                break;
+            }
+            slotTargets[slot] = copy;
+            p = link[p];
+        }
+        link[q] = copy;
+        link[current] = copy;
+        return current;
+    }
+
+    /**
+     * Adds a state with no transitions, growing the state arrays if they
+     * are full.
+     *
+     * @return the new state
+     */
+    private int newState() {
+        if (states == length.length) {
+            int capacity = grow(states);
+            length = Arrays.copyOf(length, capacity);
+            link = Arrays.copyOf(link, capacity);
+            firstEnd = Arrays.copyOf(firstEnd, capacity);
+            occurrences = Arrays.copyOf(occurrences, capacity);
+            clone = Arrays.copyOf(clone, capacity);
+            edgeHead = Arrays.copyOf(edgeHead, capacity);
+        }
+        edgeHead[states] = -1;
+        return states++;
+    }
+
+    /**
+     * Adds up the end positions of every state from the bottom of the
+     * suffix link tree, visiting states in decreasing order of length.
+     */
+    private void countOccurrences() {
+        int[] byLength = new int[textLength + 2];
+        for (int v = 0; v < states; v++) {
+            byLength[length[v] + 1]++;
+        }
+        for (int l = 1; l < byLength.length; l++) {
+            byLength[l] += byLength[l - 1];
+        }
+        int[] order = new int[states];
+        for (int v = 0; v < states; v++) {
+            order[byLength[length[v]]++] = v;
+        }
+        for (int i = states - 1; i > 0; i--) {
+            int v = order[i];
+            occurrences[link[v]] += occurrences[v];
+        }
+    }
+
+    /**
+     * Adds a transition to the hash table and to the state's list, growing
+     * either if it is full. The table is doubled once it is half full, or
+     * left at MAX_SLOTS, which MAX_TEXT_LENGTH keeps at most three quarters
+     * full.
+     *
+     * @param state  the state the transition leaves
+     * @param c      the character of the transition
+     * @param target the state the transition leads to
+     */
+    private void addEdge(int state, char c, int target) {
+        if (edges == edgeNext.length) {
+            int capacity = grow(edges);
+            edgeNext = Arrays.copyOf(edgeNext, capacity);
+            edgeChar = Arrays.copyOf(edgeChar, capacity);
+        }
+        if (2L * (edges + 1) > slotKeys.length && slotKeys.length < MAX_SLOTS) {
+            rehash(slotKeys.length << 1);
+        }
+        int edge = edges++;
+        edgeChar[edge] = c;
+        edgeNext[edge] = edgeHead[state];
+        edgeHead[state] = edge;
+        insert(key(state, c), target);
+    }
+
+    /**
+     * Puts a key that is not in the hash table yet into it.
+     *
+     * @param key    the packed state and character
+     * @param target the state the transition leads to
+     */
+    private void insert(long key, int target) {
+        int slot = slot(key);
+        while (slotKeys[slot] != EMPTY) {
+            slot = (slot + 1) & slotMask;
+        }
+        slotKeys[slot] = key;
+        slotTargets[slot] = target;
+    }
+
+    /**
+     * Moves every transition into a new hash table of the given size.
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    private void rehash(int capacity) {
+        long[] keys = slotKeys;
+        int[] targets = slotTargets;
+        slotKeys = new long[capacity];
+        slotTargets = new int[capacity];
+        slotMask = capacity - 1;
+        Arrays.fill(slotKeys, EMPTY);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                insert(keys[i], targets[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of the transition from a state on a character.
+     *
+     * @param state the state the transition leaves
+     * @param c     the character of the transition
+     * @return the slot of the transition, or -1 if there is no such
+     * transition
+     */
+    private int findSlot(int state, char c) {
+        long key = key(state, c);
+        for (int slot = slot(key); slotKeys[slot] != EMPTY; slot = (slot + 1) & slotMask) {
+            if (slotKeys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a larger capacity for an array that is full.
+     *
+     * @param size the current capacity
+     * @return the new capacity, half as much again
+     */
+    private static int grow(int size) {
+        return (int) Math.min(MAX_ARRAY_LENGTH, size + (size >> 1) + 16L);
+    }
+
+    /**
+     * Packs a state and a character into a hash table key.
+     *
+     * @param state the state
+     * @param c     the character
+     * @return the key
+     */
+    private static long key(int state, char c) {
+        return (long) state << Character.SIZE | c;
+    }
+
+    /**
+     * Returns the home slot of a key, mixing its bits so that neighbouring
+     * states spread over the table.
+     *
+     * @param key the key
+     * @return the slot the key is probed from
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & slotMask;
+    }
+}
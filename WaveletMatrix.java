@@ -0,0 +1,143 @@
+/**
+ * Wavelet tree over a sequence of small ints, stored level by level as a
+ * wavelet matrix, that answers access and rank queries in O(log sigma).
+ *
+ * Level l holds bit l of every value, from the highest bit down, in a
+ * RankBitVector. After each level the values are stably partitioned by that
+ * bit, zeros first, so the values that share their high bits are contiguous
+ * on the next level, just as they would be in a node of a pointer based
+ * wavelet tree. The whole structure takes about one bit per value per level
+ * plus the rank directories, and no pointers.
+ *
+ * @author Mackenzie Williams
+ * @version 1.0
+ */
+public class WaveletMatrix {
+
+    private final int length;
+    private final int levels;
+    private final RankBitVector[] bits;
+    // zeros[l] is the number of values whose bit l is 0
+    private final int[] zeros;
+
+    /**
+     * Builds the wavelet matrix of the given values.
+     *
+     * @param values the sequence, with every value in [0, upper]
+     * @param upper  the largest value the sequence may contain
+     * @throws java.lang.IllegalArgumentException if values is null
+     * @throws java.lang.IllegalArgumentException if a value is not in
+     *                                            [0, upper]
+     */
+    public WaveletMatrix(int[] values, int upper) {
+        if (values == null) {
+            throw new IllegalArgumentException("Cannot build a wavelet matrix from null values");
+        }
+        if (upper < 0) {
+            throw new IllegalArgumentException("Invalid upper bound: " + upper);
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0 || values[i] > upper) {
+                throw new IllegalArgumentException("Value " + values[i] + " at index " + i
+                        + " is not in [0, " + upper + "]");
+            }
+        }
+        length = values.length;
+        levels = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(upper));
+        bits = new RankBitVector[levels];
+        zeros = new int[levels];
+        int[] current = values.clone();
+        int[] next = new int[length];
+        for (int level = levels - 1; level >= 0; level--) {
+            long[] words = new long[(length + 63) >>> 6];
+            int zeroCount = 0;
+            for (int i = 0; i < length; i++) {
+                if (((current[i] >>> level) & 1) != 0) {
+                    words[i >>> 6] |= 1L << i;
+                } else {
+                    zeroCount++;
+                }
+            }
+            bits[level] = new RankBitVector(words, length);
+            zeros[level] = zeroCount;
+            int z = 0;
+            int o = zeroCount;
+            for (int i = 0; i < length; i++) {
+                if (((current[i] >>> level) & 1) != 0) {
+                    next[o++] = current[i];
+                } else {
+                    next[z++] = current[i];
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Returns the number of values in the sequence.
+     *
+     * @return the length of the sequence
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the value at the given position.
+     *
+     * @param i the position in the sequence
+     * @return the value at i
+     * @throws java.lang.IndexOutOfBoundsException if i is not in [0, length)
+     */
+    public int get(int i) {
+        if (i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of range for length " + length);
+        }
+        int value = 0;
+        int position = i;
+        for (int level = levels - 1; level >= 0; level--) {
+            RankBitVector levelBits = bits[level];
+            if (levelBits.get(position)) {
+                value |= 1 << level;
+                position = zeros[level] + levelBits.rank1(position);
+            } else {
+                position = levelBits.rank0(position);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Counts the occurrences of a value before the given position.
+     *
+     * @param value the value to count
+     * @param i     the position to count up to, exclusive
+     * @return the number of occurrences of value in [0, i)
+     * @throws java.lang.IndexOutOfBoundsException if i is not in [0, length]
+     */
+    public int rank(int value, int i) {
+        if (i < 0 || i > length) {
+            throw new IndexOutOfBoundsException("Rank " + i + " out of range for length " + length);
+        }
+        if (value < 0 || value >>> levels != 0) {
+            return 0;
+        }
+        // [start, end) is the part of the current level's range for the
+        // values that share value's bits above this level, cut at i
+        int start = 0;
+        int end = i;
+        for (int level = levels - 1; level >= 0; level--) {
+            RankBitVector levelBits = bits[level];
+            if (((value >>> level) & 1) != 0) {
+                start = zeros[level] + levelBits.rank1(start);
+                end = zeros[level] + levelBits.rank1(end);
+            } else {
+                start = levelBits.rank0(start);
+                end = levelBits.rank0(end);
+            }
+        }
+        return end - start;
+    }
+}